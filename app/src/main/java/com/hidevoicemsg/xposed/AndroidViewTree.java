@@ -0,0 +1,69 @@
+package com.hidevoicemsg.xposed;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import com.hidevoicemsg.xposed.core.ViewTree;
+
+/** Lets the platform-neutral classifier walk and hide real Android views. */
+final class AndroidViewTree implements ViewTree<View> {
+
+    static final AndroidViewTree INSTANCE = new AndroidViewTree();
+
+    private AndroidViewTree() {
+    }
+
+    @Override
+    public int getChildCount(View view) {
+        return view instanceof ViewGroup ? ((ViewGroup) view).getChildCount() : 0;
+    }
+
+    @Override
+    public View getChildAt(View view, int index) {
+        return ((ViewGroup) view).getChildAt(index);
+    }
+
+    @Override
+    public CharSequence getContentDescription(View view) {
+        return view.getContentDescription();
+    }
+
+    @Override
+    public CharSequence getText(View view) {
+        return view instanceof TextView ? ((TextView) view).getText() : null;
+    }
+
+    @Override
+    public Object getTag(View view) {
+        return view.getTag();
+    }
+
+    @Override
+    public int getId(View view) {
+        return view.getId();
+    }
+
+    @Override
+    public CharSequence getResourceName(View view, int id) {
+        try {
+            return view.getResources().getResourceEntryName(id);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isHidden(View view) {
+        return view.getVisibility() == View.GONE || HideScheduler.isQueued(view);
+    }
+
+    @Override
+    public void hide(View view) {
+        if (ModuleLog.isLoggable(ModuleLog.DEBUG)) {
+            ModuleLog.d("nav.hide", "Hiding message view: " + view.getClass().getName() +
+                        " | desc=" + view.getContentDescription() +
+                        " | tag=" + view.getTag());
+        }
+        HideScheduler.schedule(view);
+    }
+}
@@ -0,0 +1,26 @@
+package com.hidevoicemsg.xposed;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * One low-priority thread shared by the module for file I/O, so nothing the
+ * hooks trigger ever blocks Google Voice's UI thread on disk.
+ */
+final class BackgroundThread {
+
+    private static Handler handler;
+
+    private BackgroundThread() {
+    }
+
+    static synchronized Handler getHandler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("HideVoiceMsg", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,78 @@
+package com.hidevoicemsg.xposed;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-channel notification verdicts. Google Voice posts message notifications
+ * on a small fixed set of channels, so each channel is classified once when
+ * the app creates it and notify() then decides with a single lookup.
+ *
+ * Channels may be created and notifications posted from any thread. Entries
+ * are immutable and remember the classifier that produced them, so a rules
+ * swap re-classifies a channel from its saved name and description.
+ */
+final class ChannelVerdictCache {
+
+    private static final class Entry {
+        final MessageClassifier classifier;
+        final CharSequence name;
+        final String description;
+        // Entries seeded from a cache have no name to re-classify from
+        final boolean known;
+        final boolean block;
+
+        Entry(MessageClassifier classifier, CharSequence name, String description, boolean known, boolean block) {
+            this.classifier = classifier;
+            this.name = name;
+            this.description = description;
+            this.known = known;
+            this.block = block;
+        }
+    }
+
+    private final Map<String, Entry> verdicts = new ConcurrentHashMap<>();
+
+    /**
+     * Classifies a channel that is about to be created and records the
+     * verdict. With disable set, message channels are created with
+     * IMPORTANCE_NONE so the system drops their notifications before they
+     * are posted. The system keeps that importance for good: changing the
+     * rules or removing the module does not bring the channel back, only
+     * the user can in the app's notification settings.
+     */
+    boolean classify(NotificationChannel channel, MessageClassifier classifier, boolean disable) {
+        String channelId = channel.getId();
+        boolean block = classifier.isMessageChannel(channelId, channel.getName(), channel.getDescription());
+        verdicts.put(channelId, new Entry(classifier, channel.getName(), channel.getDescription(), true, block));
+        if (block && disable) {
+            channel.setImportance(NotificationManager.IMPORTANCE_NONE);
+        }
+        return block;
+    }
+
+    /** Marks a channel as blocked under the given rules, e.g. one remembered by the target cache. */
+    void block(String channelId, MessageClassifier classifier) {
+        verdicts.put(channelId, new Entry(classifier, null, null, false, true));
+    }
+
+    /** Returns the verdict for a channel, or null when the channel has not been seen under these rules. */
+    Boolean get(String channelId, MessageClassifier classifier) {
+        Entry entry = verdicts.get(channelId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.classifier != classifier) {
+            if (!entry.known) {
+                return null;
+            }
+            boolean block = classifier.isMessageChannel(channelId, entry.name, entry.description);
+            verdicts.put(channelId, new Entry(classifier, entry.name, entry.description, true, block));
+            return block;
+        }
+        return entry.block;
+    }
+}
@@ -0,0 +1,110 @@
+package com.hidevoicemsg.xposed;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Per-class facts for the global View hooks: whether a view class is a
+ * navigation container or a banner, and whether it has proven irrelevant.
+ * A class becomes irrelevant when it is known to never carry message views,
+ * or when SAMPLES_BEFORE_IRRELEVANT classifications of its instances never
+ * matched. The hooks then skip its instances after one lookup.
+ *
+ * ClassValue would fit but needs API 34, so this is an identity map. It is
+ * replaced copy-on-write: readers never lock, and a new class costs one copy.
+ * Entries remember the rules they were computed under and are rebuilt after
+ * a rules swap.
+ */
+final class ClassFlagsCache {
+
+    static final int NAVIGATION = 1;
+    static final int BANNER = 2;
+    static final int IRRELEVANT = 4;
+
+    private static final int SAMPLES_BEFORE_IRRELEVANT = 32;
+
+    // Framework classes that never carry Google Voice content
+    private static final String[] IRRELEVANT_PREFIXES = {
+        "com.android.internal.", "android.view.ViewStub", "android.view.SurfaceView", "android.view.TextureView"
+    };
+
+    static final class ClassInfo {
+        final String className;
+        final RuleSnapshot rules;
+        // Samples and the learned IRRELEVANT bit are only updated from UI threads;
+        // a lost update just delays learning
+        int flags;
+        int samples;
+
+        ClassInfo(String className, RuleSnapshot rules, int flags) {
+            this.className = className;
+            this.rules = rules;
+            this.flags = flags;
+        }
+
+        boolean isNavigation() {
+            return (flags & NAVIGATION) != 0;
+        }
+
+        boolean isBanner() {
+            return (flags & BANNER) != 0;
+        }
+
+        boolean isIrrelevant() {
+            return (flags & IRRELEVANT) != 0;
+        }
+
+        /** Records one classification of an instance of this class. */
+        void sample(boolean matched) {
+            if (matched) {
+                // One match is enough to keep the class relevant for good
+                samples = Integer.MIN_VALUE;
+            } else if (++samples == SAMPLES_BEFORE_IRRELEVANT && (flags & (NAVIGATION | BANNER)) == 0) {
+                flags |= IRRELEVANT;
+                if (ModuleLog.isLoggable(ModuleLog.DEBUG)) {
+                    ModuleLog.d("class.irrelevant", "Skipping never-matching views of class: " + className);
+                }
+            }
+        }
+    }
+
+    private volatile Map<Class<?>, ClassInfo> infos = new IdentityHashMap<>();
+
+    ClassInfo get(Class<?> viewClass, RuleSnapshot rules) {
+        ClassInfo info = infos.get(viewClass);
+        if (info != null && info.rules == rules) {
+            return info;
+        }
+        return add(viewClass, rules);
+    }
+
+    private synchronized ClassInfo add(Class<?> viewClass, RuleSnapshot rules) {
+        ClassInfo info = infos.get(viewClass);
+        if (info != null && info.rules == rules) {
+            return info;
+        }
+
+        String className = viewClass.getName();
+        info = new ClassInfo(className, rules, computeFlags(className, rules));
+        Map<Class<?>, ClassInfo> copy = new IdentityHashMap<>(infos);
+        copy.put(viewClass, info);
+        infos = copy;
+        return info;
+    }
+
+    private static int computeFlags(String className, RuleSnapshot rules) {
+        int flags = 0;
+        if (rules.isNavigationClass(className)) {
+            flags |= NAVIGATION;
+        }
+        if (rules.isBannerClass(className)) {
+            flags |= BANNER;
+        }
+        for (String prefix : IRRELEVANT_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                flags |= IRRELEVANT;
+            }
+        }
+        return flags;
+    }
+}
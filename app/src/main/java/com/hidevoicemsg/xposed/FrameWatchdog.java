@@ -0,0 +1,166 @@
+package com.hidevoicemsg.xposed;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up the time spent inside the module's UI hooks per frame and compares
+ * it with the frame budget, which is taken from the vsync interval (16.6 ms at
+ * 60 Hz, 8.3 ms at 120 Hz). Every window of frames is logged. When no message
+ * view was hidden for a while, or the hooks use too much of the budget, the
+ * Layers callback is asked to drop its most expensive hook layer.
+ *
+ * The watchdog only runs while hooks are doing frame work: after a run of
+ * frames without any, it stops posting frame callbacks until the next hook
+ * call wakes it, so an idle UI gets no extra frames.
+ */
+final class FrameWatchdog implements Choreographer.FrameCallback {
+
+    /** The hook layers the watchdog may step down through. */
+    interface Layers {
+        /** Name of the current layer, for the log. */
+        String describe();
+
+        /** Drops the most expensive remaining layer; returns false if nothing can be dropped now. */
+        boolean stepDown();
+    }
+
+    private static final int WINDOW_FRAMES = 300;
+    private static final int IDLE_FRAMES = 30;
+    // Windows in a row without a hidden view before the hooks count as steady
+    private static final int STEADY_WINDOWS = 2;
+    // Mean module time above this share of the budget forces a step down
+    private static final double MAX_BUDGET_SHARE = 0.1;
+    private static final long DEFAULT_BUDGET_NANOS = 16_666_667L;
+    private static final long MIN_BUDGET_NANOS = 4_000_000L;
+    private static final long MAX_BUDGET_NANOS = 34_000_000L;
+
+    private static volatile FrameWatchdog active;
+
+    private final Layers layers;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LongAdder frameNanos = new LongAdder();
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+    private volatile boolean paused = true;
+
+    // Window state, only touched from doFrame on the UI thread
+    private long lastFrameTime;
+    private long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private long minInterval = Long.MAX_VALUE;
+    private int frames;
+    private int idleFrames;
+    private int heavyFrames;
+    private long windowNanos;
+    private long maxFrameNanos;
+    private long hiddenAtWindowStart;
+    private int steadyWindows;
+
+    private final Runnable resumeTask = new Runnable() {
+        @Override
+        public void run() {
+            wakePending.set(false);
+            if (paused) {
+                paused = false;
+                lastFrameTime = 0;
+                idleFrames = 0;
+                Choreographer.getInstance().postFrameCallback(FrameWatchdog.this);
+            }
+        }
+    };
+
+    private FrameWatchdog(Layers layers) {
+        this.layers = layers;
+        this.hiddenAtWindowStart = HookStats.viewsHidden.sum();
+    }
+
+    /** Installs the watchdog; it starts with the first frame work reported by a hook. */
+    static void install(Layers layers) {
+        if (active == null) {
+            active = new FrameWatchdog(layers);
+        }
+    }
+
+    /** Called by HookStats for every UI hook call. */
+    static void onFrameWork(long nanos) {
+        FrameWatchdog watchdog = active;
+        if (watchdog == null) {
+            return;
+        }
+        watchdog.frameNanos.add(nanos);
+        if (watchdog.paused && watchdog.wakePending.compareAndSet(false, true)) {
+            watchdog.mainHandler.post(watchdog.resumeTask);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        long moduleNanos = frameNanos.sumThenReset();
+
+        if (lastFrameTime != 0) {
+            long interval = frameTimeNanos - lastFrameTime;
+            if (interval > 0 && interval < minInterval) {
+                minInterval = interval;
+            }
+        }
+        lastFrameTime = frameTimeNanos;
+
+        frames++;
+        windowNanos += moduleNanos;
+        if (moduleNanos > maxFrameNanos) {
+            maxFrameNanos = moduleNanos;
+        }
+        if (moduleNanos > budgetNanos * MAX_BUDGET_SHARE) {
+            heavyFrames++;
+        }
+
+        if (frames >= WINDOW_FRAMES) {
+            endWindow();
+        }
+
+        if (moduleNanos == 0 && ++idleFrames >= IDLE_FRAMES) {
+            // Nothing hooked ran for a while; wait for the next hook call
+            paused = true;
+            return;
+        }
+        if (moduleNanos != 0) {
+            idleFrames = 0;
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void endWindow() {
+        if (minInterval != Long.MAX_VALUE) {
+            // The shortest gap between frames is the vsync period
+            budgetNanos = Math.max(MIN_BUDGET_NANOS, Math.min(MAX_BUDGET_NANOS, minInterval));
+        }
+
+        long hidden = HookStats.viewsHidden.sum();
+        long hiddenInWindow = hidden - hiddenAtWindowStart;
+        long meanNanos = windowNanos / frames;
+
+        if (ModuleLog.isLoggable(ModuleLog.INFO)) {
+            ModuleLog.i("watchdog", "Frame overhead (" + layers.describe() + "): frames=" + frames
+                        + " budget=" + budgetNanos / 1000 + "us mean=" + meanNanos / 1000 + "us"
+                        + " max=" + maxFrameNanos / 1000 + "us heavy=" + heavyFrames
+                        + " hidden=" + hiddenInWindow);
+        }
+
+        steadyWindows = hiddenInWindow == 0 ? steadyWindows + 1 : 0;
+        boolean overBudget = meanNanos > budgetNanos * MAX_BUDGET_SHARE;
+        if ((steadyWindows >= STEADY_WINDOWS || overBudget) && layers.stepDown()) {
+            ModuleLog.i("Frame watchdog stepped down to " + layers.describe()
+                        + (overBudget ? " (over budget)" : " (steady)"));
+            steadyWindows = 0;
+        }
+
+        frames = 0;
+        heavyFrames = 0;
+        windowNanos = 0;
+        maxFrameNanos = 0;
+        minInterval = Long.MAX_VALUE;
+        hiddenAtWindowStart = hidden;
+    }
+}
@@ -0,0 +1,106 @@
+package com.hidevoicemsg.xposed;
+
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batches view hides. Hooks queue the views they want gone, and the queue is
+ * applied in one go from a frame callback, which Choreographer runs before
+ * the traversal of the next frame. That way a burst of hides costs one
+ * layout pass instead of a requestLayout/invalidate cascade per view, and
+ * nothing changes visibility in the middle of a measure pass. Hooks that run
+ * inside measure zero the measure spec in the meantime.
+ *
+ * Views already GONE or already queued are skipped. The queue is only used
+ * from the main thread; hides requested on another thread are applied
+ * directly, and isQueued() answers false there.
+ */
+final class HideScheduler {
+
+    // Identity set; views are held for at most one frame
+    private static final Set<View> queued = Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
+    private static final List<View> queue = new ArrayList<>();
+    private static boolean scheduled;
+
+    private static final Choreographer.FrameCallback flushCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            scheduled = false;
+            flush();
+        }
+    };
+
+    private HideScheduler() {
+    }
+
+    /**
+     * Queues a view to be hidden before the next traversal. Returns false if
+     * it is already GONE or already queued.
+     */
+    static boolean schedule(View view) {
+        if (view.getVisibility() == View.GONE) {
+            return false;
+        }
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            apply(view);
+            return true;
+        }
+        if (!queued.add(view)) {
+            return false;
+        }
+        queue.add(view);
+        if (!scheduled) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(flushCallback);
+        }
+        return true;
+    }
+
+    /**
+     * True while the view waits in the queue, so walks treat it as hidden
+     * already. Always false off the main thread (e.g. the Toast hook's scan),
+     * which must not touch the queue and never adds to it.
+     */
+    static boolean isQueued(View view) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return false;
+        }
+        return !queued.isEmpty() && queued.contains(view);
+    }
+
+    /** Applies every queued hide now, for callers already running ahead of the traversal. */
+    static void flush() {
+        if (queue.isEmpty()) {
+            return;
+        }
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(flushCallback);
+            scheduled = false;
+        }
+        for (int i = 0; i < queue.size(); i++) {
+            apply(queue.get(i));
+        }
+        queue.clear();
+        queued.clear();
+    }
+
+    private static void apply(View view) {
+        if (view.getVisibility() == View.GONE) {
+            return;
+        }
+        view.setVisibility(View.GONE);
+        HookStats.viewsHidden.increment();
+
+        // Also set alpha to 0 to prevent any flicker
+        try {
+            view.setAlpha(0f);
+        } catch (Throwable ignored) {
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.hidevoicemsg.xposed;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import com.hidevoicemsg.xposed.core.HierarchySnapshot;
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+import com.hidevoicemsg.xposed.core.RecordedView;
+import com.hidevoicemsg.xposed.core.SnapshotRules;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Debug-mode recorder: when record_hierarchies is enabled, each resumed
+ * activity's window is captured shortly after it settles and written as a
+ * HierarchySnapshot, for the JVM replay tool in :replay.
+ *
+ * View text is not recorded: it holds contact names, numbers and message
+ * snippets, and the classifier does not read it. Verdicts are computed with
+ * a classifier of their own, so a capture does not feed the target cache or
+ * the hook counters.
+ *
+ * Capture runs on the UI thread; encoding and writing run on the background
+ * thread.
+ */
+final class HierarchyRecorder {
+
+    private static final long CAPTURE_DELAY_MS = 1000;
+    private static final int MAX_SNAPSHOTS = 20;
+    // Keeps every string within DataOutputStream.writeUTF's limit
+    private static final int MAX_TEXT_LENGTH = 256;
+
+    private final File directory;
+    private final long versionCode;
+
+    HierarchyRecorder(File directory, long versionCode) {
+        this.directory = directory;
+        this.versionCode = versionCode;
+    }
+
+    /**
+     * Captures the activity's window on a later frame, once the first layout
+     * is done. cachedResourceIds are the target cache's message IDs, which
+     * were seeded into the rules and are recorded with them.
+     */
+    void scheduleCapture(Activity activity, final Set<Integer> cachedResourceIds) {
+        final View decorView = activity.getWindow().getDecorView();
+        decorView.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (decorView.isAttachedToWindow()) {
+                    capture(decorView, cachedResourceIds);
+                }
+            }
+        }, CAPTURE_DELAY_MS);
+    }
+
+    private void capture(View root, Set<Integer> cachedResourceIds) {
+        SnapshotRules rules = snapshotRules(RuleStore.get(), cachedResourceIds);
+        final HierarchySnapshot snapshot = new HierarchySnapshot(versionCode, System.currentTimeMillis(),
+            rules, Collections.singletonList(record(root, rules.newClassifier())));
+
+        BackgroundThread.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                write(snapshot);
+            }
+        });
+    }
+
+    private static SnapshotRules snapshotRules(RuleSnapshot rules, Set<Integer> cachedResourceIds) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (int resourceId : rules.resourceIds) {
+            ids.add(resourceId);
+        }
+        synchronized (cachedResourceIds) {
+            ids.addAll(cachedResourceIds);
+        }
+        int[] messageResourceIds = new int[ids.size()];
+        int i = 0;
+        for (int resourceId : ids) {
+            messageResourceIds[i++] = resourceId;
+        }
+        return new SnapshotRules(rules.messageKeywords, rules.excludedKeywords, messageResourceIds);
+    }
+
+    private static RecordedView record(View view, MessageClassifier classifier) {
+        String resourceName = null;
+        int id = view.getId();
+        if (id != View.NO_ID) {
+            resourceName = toText(AndroidViewTree.INSTANCE.getResourceName(view, id));
+        }
+
+        RecordedView node = new RecordedView(
+            view.getClass().getName(),
+            toText(view.getContentDescription()),
+            null,
+            toText(view.getTag()),
+            resourceName,
+            id,
+            view.getVisibility(),
+            classifier.scanView(view, AndroidViewTree.INSTANCE));
+
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                node.children.add(record(group.getChildAt(i), classifier));
+            }
+        }
+        return node;
+    }
+
+    private static String toText(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString();
+        return text.length() > MAX_TEXT_LENGTH ? text.substring(0, MAX_TEXT_LENGTH) : text;
+    }
+
+    private void write(HierarchySnapshot snapshot) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        File file = new File(directory, "snapshot-" + snapshot.capturedAt + ".hvs");
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            snapshot.write(out);
+            ModuleLog.i("Recorded " + snapshot.nodeCount() + " views to " + file.getName());
+        } catch (IOException e) {
+            ModuleLog.e("Error writing hierarchy snapshot: " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        pruneOldSnapshots();
+    }
+
+    private void pruneOldSnapshots() {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= MAX_SNAPSHOTS) {
+            return;
+        }
+        // Names embed the capture time, so name order is age order
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - MAX_SNAPSHOTS; i++) {
+            files[i].delete();
+        }
+    }
+}
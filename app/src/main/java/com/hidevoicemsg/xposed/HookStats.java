@@ -0,0 +1,208 @@
+package com.hidevoicemsg.xposed;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free per-hook invocation counts and fixed-bucket latency histograms,
+ * plus counters for views classified, hidden, served from a cache and
+ * skipped by class.
+ *
+ * Dump with:
+ *   adb shell am broadcast -a com.hidevoicemsg.xposed.DUMP_STATS -p com.google.android.apps.googlevoice
+ * The report is written to Google Voice's cache dir and to the module log.
+ * Only the shell and other holders of android.permission.DUMP can send it.
+ */
+final class HookStats {
+
+    static final int DRAW = 0;
+    static final int MEASURE = 1;
+    static final int ATTACH = 2;
+    static final int ADD_VIEW = 3;
+    static final int TOAST_SHOW = 4;
+    static final int NOTIFY_TAGGED = 5;
+    static final int NOTIFY = 6;
+    static final int NAVIGATION_PASS = 7;
+    static final int TARGET_NAVIGATION = 8;
+    static final int TARGET_BANNER = 9;
+    static final int CREATE_CHANNEL = 10;
+    static final int MENU_INFLATE = 11;
+    static final int MENU_ADD = 12;
+    static final int SET_DESCRIPTION = 13;
+    static final int ADAPTER = 14;
+
+    private static final String[] HOOK_NAMES = {
+        "View.draw", "View.measure", "View.onAttachedToWindow", "ViewGroup.addView",
+        "Toast.show", "NotificationManager.notify(tag)", "NotificationManager.notify",
+        "navigation pass", "navigation targeted", "banner targeted",
+        "NotificationManager.createNotificationChannel(s)", "MenuInflater.inflate", "Menu.add",
+        "View.setContentDescription", "RecyclerView.Adapter create/bind"
+    };
+
+    // Hooks that run on the UI thread as part of a frame; their time goes to the FrameWatchdog
+    private static final boolean[] FRAME_HOOKS = new boolean[HOOK_NAMES.length];
+
+    static final String ACTION_DUMP = "com.hidevoicemsg.xposed.DUMP_STATS";
+    static final String EXTRA_RESET = "reset";
+    private static final String DUMP_PERMISSION = "android.permission.DUMP";
+    private static final String DUMP_FILE = "hidevoicemsg_stats.txt";
+
+    // Bucket i counts calls that took less than 2^(i + 8) ns (256 ns .. 4 ms);
+    // the last bucket counts everything slower
+    private static final int BUCKET_COUNT = 16;
+    private static final int FIRST_BUCKET_SHIFT = 8;
+
+    private static final LongAdder[] calls = newAdders(HOOK_NAMES.length);
+    private static final LongAdder[] totalNanos = newAdders(HOOK_NAMES.length);
+    private static final LongAdder[][] histograms = new LongAdder[HOOK_NAMES.length][];
+
+    static final LongAdder viewsClassified = new LongAdder();
+    static final LongAdder viewsHidden = new LongAdder();
+    static final LongAdder cacheHits = new LongAdder();
+    static final LongAdder classSkips = new LongAdder();
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = newAdders(BUCKET_COUNT);
+            FRAME_HOOKS[i] = true;
+        }
+        FRAME_HOOKS[TOAST_SHOW] = false;
+        FRAME_HOOKS[NOTIFY_TAGGED] = false;
+        FRAME_HOOKS[NOTIFY] = false;
+        FRAME_HOOKS[CREATE_CHANNEL] = false;
+    }
+
+    private HookStats() {
+    }
+
+    /** Records one call of a hook that started at startNanos (from System.nanoTime()). */
+    static void record(int hook, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        calls[hook].increment();
+        totalNanos[hook].add(elapsed);
+        histograms[hook][bucketOf(elapsed)].increment();
+        if (FRAME_HOOKS[hook]) {
+            FrameWatchdog.onFrameWork(elapsed);
+        }
+    }
+
+    private static int bucketOf(long nanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(nanos) - FIRST_BUCKET_SHIFT;
+        if (bucket < 0) {
+            return 0;
+        }
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    static String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append("HideVoiceMsg hook stats\n");
+        out.append("views classified=").append(viewsClassified.sum())
+           .append(" hidden=").append(viewsHidden.sum())
+           .append(" cache hits=").append(cacheHits.sum())
+           .append(" class skips=").append(classSkips.sum()).append('\n');
+
+        for (int hook = 0; hook < HOOK_NAMES.length; hook++) {
+            long count = calls[hook].sum();
+            if (count == 0) {
+                continue;
+            }
+            long nanos = totalNanos[hook].sum();
+            out.append(HOOK_NAMES[hook])
+               .append(": calls=").append(count)
+               .append(" total=").append(nanos / 1000).append("us")
+               .append(" mean=").append(nanos / count).append("ns\n  ");
+
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                long hits = histograms[hook][bucket].sum();
+                if (hits == 0) {
+                    continue;
+                }
+                if (bucket == BUCKET_COUNT - 1) {
+                    out.append(">=").append(1L << (bucket - 1 + FIRST_BUCKET_SHIFT));
+                } else {
+                    out.append('<').append(1L << (bucket + FIRST_BUCKET_SHIFT));
+                }
+                out.append("ns:").append(hits).append(' ');
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    static void reset() {
+        for (int hook = 0; hook < HOOK_NAMES.length; hook++) {
+            calls[hook].reset();
+            totalNanos[hook].reset();
+            for (LongAdder bucket : histograms[hook]) {
+                bucket.reset();
+            }
+        }
+        viewsClassified.reset();
+        viewsHidden.reset();
+        cacheHits.reset();
+        classSkips.reset();
+    }
+
+    /** Registers the dump broadcast receiver in Google Voice's process. */
+    static void registerDumpReceiver(final Context context) {
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context receiverContext, final Intent intent) {
+                final File file = new File(context.getCacheDir(), DUMP_FILE);
+                BackgroundThread.getHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeDump(file, intent.getBooleanExtra(EXTRA_RESET, false));
+                    }
+                });
+            }
+        };
+
+        IntentFilter filter = new IntentFilter(ACTION_DUMP);
+        // Exported so adb can reach it, but only senders holding DUMP (the shell) may; other apps cannot
+        if (Build.VERSION.SDK_INT >= 33) {
+            context.registerReceiver(receiver, filter, DUMP_PERMISSION, null, Context.RECEIVER_EXPORTED);
+        } else {
+            context.registerReceiver(receiver, filter, DUMP_PERMISSION, null);
+        }
+    }
+
+    private static void writeDump(File file, boolean reset) {
+        String report = dump();
+        if (reset) {
+            reset();
+        }
+
+        ModuleLog.i(report);
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(file);
+            writer.write(report);
+        } catch (IOException e) {
+            ModuleLog.e("Error writing stats: " + e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,152 @@
+package com.hidevoicemsg.xposed;
+
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+import com.hidevoicemsg.xposed.core.KeywordMatcher;
+import com.hidevoicemsg.xposed.core.SubtreeScanner;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Verdicts for the RecyclerView adapter hooks, one per adapter class and
+ * view type. A type is blocked once its first SAMPLES_BEFORE_BLOCK bound
+ * items all matched, and allowed for good after a single item that did not
+ * while it was still being sampled. Holders are mapped to their view type
+ * when they are created, which keeps binds free of reflection. Verdicts are
+ * dropped when the rules change.
+ *
+ * Holders of blocked types are created collapsed to zero size, but every
+ * bind is still checked: a type shared by message and call rows can end up
+ * blocked, so a bound item that does not match is restored. The original
+ * layout size is kept for that.
+ *
+ * Only used from the UI thread.
+ */
+final class ItemTypeVerdictCache {
+
+    static final int UNKNOWN = 0;
+    static final int ALLOWED = 1;
+    static final int BLOCKED = 2;
+
+    private static final int SAMPLES_BEFORE_BLOCK = 3;
+    // Stored states; positive values count matching samples so far
+    private static final int STATE_ALLOWED = -1;
+    private static final int STATE_BLOCKED = -2;
+
+    // ViewHolder and View do not override equals/hashCode, so these are identity maps
+    private final Map<Object, Integer> holderTypes = new WeakHashMap<>();
+    private final Map<View, int[]> collapsedSizes = new WeakHashMap<>();
+    private final Map<Class<?>, SparseIntArray> types = new HashMap<>();
+    private RuleSnapshot rules;
+    private SubtreeScanner<View> scanner;
+
+    void onCreated(Object holder, int viewType) {
+        holderTypes.put(holder, viewType);
+    }
+
+    /** The verdict for the holder's view type; UNKNOWN for holders created before the hooks. */
+    int verdict(Object adapter, Object holder, RuleSnapshot snapshot) {
+        Integer viewType = holderTypes.get(holder);
+        if (viewType == null) {
+            return UNKNOWN;
+        }
+        return toVerdict(typesOf(adapter, snapshot).get(viewType));
+    }
+
+    /** Classifies a freshly bound item and returns the updated verdict for its view type. */
+    int sample(Object adapter, Object holder, View itemView, RuleSnapshot snapshot) {
+        Integer viewType = holderTypes.get(holder);
+        if (viewType == null) {
+            return UNKNOWN;
+        }
+        SparseIntArray states = typesOf(adapter, snapshot);
+        int state = states.get(viewType);
+        if (state < 0) {
+            return toVerdict(state);
+        }
+
+        if (!KeywordMatcher.isMatch(scanner.scan(itemView))) {
+            states.put(viewType, STATE_ALLOWED);
+            return ALLOWED;
+        }
+        if (++state >= SAMPLES_BEFORE_BLOCK) {
+            states.put(viewType, STATE_BLOCKED);
+            if (ModuleLog.isLoggable(ModuleLog.DEBUG)) {
+                ModuleLog.d("adapter.blocked", "Blocking view type " + viewType + " of " + adapter.getClass().getName());
+            }
+            return BLOCKED;
+        }
+        states.put(viewType, state);
+        return UNKNOWN;
+    }
+
+    /** Checks a bound item of a blocked type: it stays collapsed only if it still matches. */
+    void verify(View itemView) {
+        if (KeywordMatcher.isMatch(scanner.scan(itemView))) {
+            collapse(itemView);
+        } else {
+            restore(itemView);
+        }
+    }
+
+    /** Shrinks an item view to nothing, remembering its layout size. */
+    void collapse(View itemView) {
+        if (collapsedSizes.containsKey(itemView)) {
+            return;
+        }
+        ViewGroup.LayoutParams params = itemView.getLayoutParams();
+        if (params == null) {
+            collapsedSizes.put(itemView, new int[] {
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT
+            });
+            params = new ViewGroup.LayoutParams(0, 0);
+        } else {
+            collapsedSizes.put(itemView, new int[] {params.width, params.height});
+            params.width = 0;
+            params.height = 0;
+        }
+        itemView.setLayoutParams(params);
+        itemView.setVisibility(View.GONE);
+        HookStats.viewsHidden.increment();
+    }
+
+    /** Undoes collapse() for an item that is not a message or whose type is no longer blocked. */
+    void restore(View itemView) {
+        int[] size = collapsedSizes.remove(itemView);
+        if (size == null) {
+            return;
+        }
+        ViewGroup.LayoutParams params = itemView.getLayoutParams();
+        if (params != null) {
+            params.width = size[0];
+            params.height = size[1];
+            itemView.setLayoutParams(params);
+        }
+        itemView.setVisibility(View.VISIBLE);
+    }
+
+    private SparseIntArray typesOf(Object adapter, RuleSnapshot snapshot) {
+        if (snapshot != rules) {
+            rules = snapshot;
+            types.clear();
+            scanner = new SubtreeScanner<>(snapshot.rules, AndroidViewTree.INSTANCE,
+                SubtreeScanner.DEFAULT_MAX_DEPTH, SubtreeScanner.DEFAULT_MAX_NODES);
+        }
+        Class<?> adapterClass = adapter.getClass();
+        SparseIntArray states = types.get(adapterClass);
+        if (states == null) {
+            states = new SparseIntArray();
+            types.put(adapterClass, states);
+        }
+        return states;
+    }
+
+    private static int toVerdict(int state) {
+        if (state == STATE_BLOCKED) {
+            return BLOCKED;
+        }
+        return state == STATE_ALLOWED ? ALLOWED : UNKNOWN;
+    }
+}
@@ -4,13 +4,26 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.os.Handler;
-import android.os.Looper;
-import android.view.ViewTreeObserver;
 import android.app.Notification;
-import android.widget.TextView;
+import android.app.NotificationChannel;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import com.hidevoicemsg.xposed.core.KeywordMatcher;
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+import com.hidevoicemsg.xposed.core.ResourceVerdictTable;
+import com.hidevoicemsg.xposed.core.SubtreeScanner;
 import de.robv.android.xposed.IXposedHookLoadPackage;
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XposedBridge;
@@ -20,8 +33,65 @@ import de.robv.android.xposed.callbacks.XC_LoadPackage;
 public class MainHook implements IXposedHookLoadPackage {
 
     private static final String GOOGLE_VOICE_PACKAGE = "com.google.android.apps.googlevoice";
-    private static final Set<View> monitoredViews = new HashSet<>();
-    private static Handler handler;
+    private static final String TARGET_CACHE_FILE = "cache/hidevoicemsg_targets.bin";
+    private static final String SNAPSHOT_DIR = "cache/hidevoicemsg_snapshots";
+    private static final String RECYCLER_VIEW_CLASS = "androidx.recyclerview.widget.RecyclerView";
+    // Menu implementations behind Material's navigation menus and the platform menus
+    private static final String[] MENU_BUILDER_CLASSES = {
+        "androidx.appcompat.view.menu.MenuBuilder", "com.android.internal.view.menu.MenuBuilder"
+    };
+
+    private static final MonitorRegistry monitoredViews = new MonitorRegistry(new Runnable() {
+        @Override
+        public void run() {
+            removeDescriptionHook();
+        }
+    });
+    // Only installed while at least one navigation view is monitored
+    private static XC_MethodHook.Unhook descriptionHook;
+    // Global attach/measure hooks; the draw hook is kept apart so the watchdog can drop it first
+    private static final List<XC_MethodHook.Unhook> globalViewHooks = new ArrayList<>();
+    private static XC_MethodHook.Unhook globalDrawHook;
+    private static Method viewDrawMethod;
+    private static final Set<Class<?>> discoveredClasses = Collections.synchronizedSet(new HashSet<Class<?>>());
+    // Method and callback pairs, so per-class callbacks can share an inherited method
+    private static final Set<List<Object>> hookedMethods = Collections.synchronizedSet(new HashSet<List<Object>>());
+    private static TargetCache targetCache;
+    // Removed once the first Activity arms the view stage; UI thread only
+    private static Set<XC_MethodHook.Unhook> activityCreateHooks;
+    private static boolean viewStageInstalled;
+    // Menus that had Messages items removed while being built; identity keys, UI thread only
+    private static final Map<Menu, Boolean> filteredMenus = new WeakHashMap<>();
+    // Set once the navigation view's menu is known to be one of them
+    private static volatile boolean menuFiltered;
+    // Set when one of them was a navigation menu (by class name), before any navigation view is known
+    private static volatile boolean navigationMenuFiltered;
+
+    // Counters and discoveries from whichever rule snapshot is current
+    private static final MessageClassifier.Listener classifierListener = new MessageClassifier.Listener() {
+        @Override
+        public void onViewClassified() {
+            HookStats.viewsClassified.increment();
+        }
+
+        @Override
+        public void onResourceCacheHit() {
+            HookStats.cacheHits.increment();
+        }
+
+        @Override
+        public void onMessageResource(int resourceId) {
+            targetCache.addMessageResourceId(resourceId);
+        }
+    };
+    private static final ClassFlagsCache classFlags = new ClassFlagsCache();
+    private static final ViewVerdictCache verdictCache = new ViewVerdictCache(classFlags);
+    // Subtree scanner for the addView and banner hooks, rebuilt when the rules change; UI thread only
+    private static KeywordMatcher subtreeRules;
+    private static SubtreeScanner<View> subtreeScanner;
+    private static final ChannelVerdictCache channelVerdicts = new ChannelVerdictCache();
+    private static final ItemTypeVerdictCache itemTypeVerdicts = new ItemTypeVerdictCache();
+    private static Field viewHolderItemView;
 
     @Override
     public void handleLoadPackage(XC_LoadPackage.LoadPackageParam lpparam) throws Throwable {
@@ -29,540 +99,1145 @@ public class MainHook implements IXposedHookLoadPackage {
             return;
         }
 
-        XposedBridge.log("HideVoiceMsg: Loaded into Google Voice");
+        long stageStart = System.nanoTime();
+        final ClassLoader classLoader = lpparam.classLoader;
 
-        handler = new Handler(Looper.getMainLooper());
+        // Rules come from the module preferences and are reloaded when they change
+        RuleSnapshot rules = RuleStore.load(classifierListener);
+        ModuleLog.i("Loaded into Google Voice");
 
-        // Hook View.onAttachedToWindow to catch when navigation views are added
+        // Register the stats dump receiver once the Application exists
         try {
-            Class<?> viewClass = XposedHelpers.findClass("android.view.View", lpparam.classLoader);
-
-            XposedHelpers.findAndHookMethod(viewClass, "onAttachedToWindow",
+            XposedHelpers.findAndHookMethod("android.app.Instrumentation", classLoader,
+                "callApplicationOnCreate", android.app.Application.class,
                 new XC_MethodHook() {
                     @Override
-                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        View view = (View) param.thisObject;
-
-                        // Immediately hide message views before they attach
-                        CharSequence desc = view.getContentDescription();
-                        if (desc != null && desc.toString().toLowerCase().contains("message")) {
-                            String descStr = desc.toString().toLowerCase();
-                            // Make sure it's not a call-related message
-                            if (!descStr.contains("call") && !descStr.contains("voicemail")) {
-                                view.setVisibility(View.GONE);
-                                view.setAlpha(0f);
-                                XposedBridge.log("HideVoiceMsg: Pre-hid message view before attach: " + desc);
-                            }
-                        }
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        HookStats.registerDumpReceiver((android.app.Application) param.args[0]);
                     }
+                });
+        } catch (Throwable t) {
+            ModuleLog.e("Error registering stats receiver: " + t.getMessage());
+        }
 
-                    @Override
-                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
-                        View view = (View) param.thisObject;
-                        String className = view.getClass().getName();
+        // Reuse what discovery found last time for this Google Voice version
+        long versionCode = getVersionCode(lpparam.appInfo);
+        targetCache = TargetCache.load(new File(lpparam.appInfo.dataDir, TARGET_CACHE_FILE),
+            versionCode, rules.fingerprint);
 
-                        // Check if this is a bottom navigation view
-                        if (className.contains("BottomNavigation") ||
-                            className.contains("NavigationBar") ||
-                            className.contains("NavigationView")) {
+        final HierarchyRecorder recorder = new HierarchyRecorder(
+            new File(lpparam.appInfo.dataDir, SNAPSHOT_DIR), versionCode);
 
-                            XposedBridge.log("HideVoiceMsg: Found navigation view: " + className);
+        synchronized (targetCache.messageResourceIds) {
+            for (int resourceId : targetCache.messageResourceIds) {
+                rules.resourceVerdicts.put(resourceId, ResourceVerdictTable.MESSAGE);
+            }
+        }
+        synchronized (targetCache.channelIds) {
+            for (String channelId : targetCache.channelIds) {
+                channelVerdicts.block(channelId, rules.classifier);
+            }
+        }
 
-                            if (!monitoredViews.contains(view)) {
-                                monitoredViews.add(view);
-                                startContinuousMonitoring(view);
-                            }
+        // Filter the Messages item out of menus while they are being built
+        installMenuHooks(classLoader);
+
+        // Hook NotificationManager to block messaging notifications
+        try {
+            Class<?> notificationManagerClass = XposedHelpers.findClass("android.app.NotificationManager", classLoader);
+
+            // Classify each channel once, as Google Voice creates it
+            XposedHelpers.findAndHookMethod(notificationManagerClass, "createNotificationChannel",
+                NotificationChannel.class,
+                new XC_MethodHook() {
+                    @Override
+                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                        long start = System.nanoTime();
+                        try {
+                            classifyChannel((NotificationChannel) param.args[0], RuleStore.get());
+                        } finally {
+                            HookStats.record(HookStats.CREATE_CHANNEL, start);
                         }
                     }
                 });
 
-            XposedBridge.log("HideVoiceMsg: Hooked View.onAttachedToWindow");
-        } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error hooking View: " + t.getMessage());
-        }
-
-        // Hook View's measure method to prevent message views from being measured
-        try {
-            Class<?> viewClass = XposedHelpers.findClass("android.view.View", lpparam.classLoader);
-
-            XposedHelpers.findAndHookMethod(viewClass, "measure",
-                int.class, int.class,
+            XposedHelpers.findAndHookMethod(notificationManagerClass, "createNotificationChannels",
+                List.class,
                 new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        View view = (View) param.thisObject;
-                        CharSequence desc = view.getContentDescription();
-
-                        if (desc != null && desc.toString().toLowerCase().contains("message")) {
-                            String descStr = desc.toString().toLowerCase();
-                            if (!descStr.contains("call") && !descStr.contains("voicemail")) {
-                                // Force the view to have 0 dimensions
-                                view.setVisibility(View.GONE);
-                                param.args[0] = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.EXACTLY);
-                                param.args[1] = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.EXACTLY);
+                        long start = System.nanoTime();
+                        try {
+                            List<?> channels = (List<?>) param.args[0];
+                            RuleSnapshot rules = RuleStore.get();
+                            if (channels != null) {
+                                for (Object channel : channels) {
+                                    classifyChannel((NotificationChannel) channel, rules);
+                                }
                             }
+                        } finally {
+                            HookStats.record(HookStats.CREATE_CHANNEL, start);
                         }
                     }
                 });
 
-            XposedBridge.log("HideVoiceMsg: Hooked View.measure");
-        } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error hooking measure: " + t.getMessage());
-        }
+            XposedHelpers.findAndHookMethod(notificationManagerClass, "notify",
+                String.class, int.class, Notification.class,
+                new XC_MethodHook() {
+                    @Override
+                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                        long start = System.nanoTime();
+                        try {
+                            Notification notification = (Notification) param.args[2];
 
-        // Hook View's draw method to prevent rendering
-        try {
-            Class<?> viewClass = XposedHelpers.findClass("android.view.View", lpparam.classLoader);
+                            if (notification != null && isMessageRelatedNotification(notification, RuleStore.get())) {
+                                ModuleLog.d("notification.blocked", "Blocked messaging notification");
+                                param.setResult(null);
+                            }
+                        } finally {
+                            HookStats.record(HookStats.NOTIFY_TAGGED, start);
+                        }
+                    }
+                });
 
-            XposedHelpers.findAndHookMethod(viewClass, "draw",
-                android.graphics.Canvas.class,
+            XposedHelpers.findAndHookMethod(notificationManagerClass, "notify",
+                int.class, Notification.class,
                 new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        View view = (View) param.thisObject;
-                        CharSequence desc = view.getContentDescription();
+                        long start = System.nanoTime();
+                        try {
+                            Notification notification = (Notification) param.args[1];
 
-                        if (desc != null && desc.toString().toLowerCase().contains("message")) {
-                            String descStr = desc.toString().toLowerCase();
-                            if (!descStr.contains("call") && !descStr.contains("voicemail")) {
-                                // Don't draw the view at all
+                            if (notification != null && isMessageRelatedNotification(notification, RuleStore.get())) {
+                                ModuleLog.d("notification.blocked", "Blocked messaging notification (int version)");
                                 param.setResult(null);
                             }
+                        } finally {
+                            HookStats.record(HookStats.NOTIFY, start);
                         }
                     }
                 });
 
-            XposedBridge.log("HideVoiceMsg: Hooked View.draw");
+            ModuleLog.i("Hooked NotificationManager channels and notify");
         } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error hooking draw: " + t.getMessage());
+            ModuleLog.e("Error hooking NotificationManager: " + t.getMessage());
         }
 
         // Hook Toast to block messaging toasts
         try {
-            Class<?> toastClass = XposedHelpers.findClass("android.widget.Toast", lpparam.classLoader);
+            Class<?> toastClass = XposedHelpers.findClass("android.widget.Toast", classLoader);
 
             XposedHelpers.findAndHookMethod(toastClass, "show",
                 new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        Object toast = param.thisObject;
-
+                        long start = System.nanoTime();
                         try {
-                            // Get the toast text
-                            View view = (View) XposedHelpers.callMethod(toast, "getView");
-                            if (view != null && view instanceof ViewGroup) {
-                                String toastText = extractTextFromView(view);
-                                if (toastText != null && isMessageRelatedText(toastText)) {
-                                    XposedBridge.log("HideVoiceMsg: Blocked message toast: " + toastText);
-                                    param.setResult(null);
-                                }
+                            RuleSnapshot rules = RuleStore.get();
+                            if (!rules.toastEnabled) {
+                                return;
                             }
-                        } catch (Throwable t) {
-                            // Try alternative method for newer Android versions
+                            Object toast = param.thisObject;
+
                             try {
-                                CharSequence text = (CharSequence) XposedHelpers.callMethod(toast, "getText");
-                                if (text != null && isMessageRelatedText(text.toString())) {
-                                    XposedBridge.log("HideVoiceMsg: Blocked message toast: " + text);
-                                    param.setResult(null);
+                                // Get the toast text
+                                View view = (View) XposedHelpers.callMethod(toast, "getView");
+                                if (view != null && view instanceof ViewGroup) {
+                                    // Toasts may be shown from any thread, so use a private scanner
+                                    SubtreeScanner<View> scanner = new SubtreeScanner<>(rules.rules,
+                                        AndroidViewTree.INSTANCE, SubtreeScanner.DEFAULT_MAX_DEPTH,
+                                        SubtreeScanner.DEFAULT_MAX_NODES);
+                                    if (KeywordMatcher.isMatch(scanner.scan(view))) {
+                                        ModuleLog.i("toast.blocked", "Blocked message toast");
+                                        param.setResult(null);
+                                    }
+                                }
+                            } catch (Throwable t) {
+                                // Try alternative method for newer Android versions
+                                try {
+                                    CharSequence text = (CharSequence) XposedHelpers.callMethod(toast, "getText");
+                                    if (rules.classifier.isMessageText(text)) {
+                                        ModuleLog.i("toast.blocked", "Blocked message toast: " + text);
+                                        param.setResult(null);
+                                    }
+                                } catch (Throwable ignored) {
                                 }
-                            } catch (Throwable ignored) {
                             }
+                        } finally {
+                            HookStats.record(HookStats.TOAST_SHOW, start);
                         }
                     }
                 });
 
-            XposedBridge.log("HideVoiceMsg: Hooked Toast.show");
+            ModuleLog.i("Hooked Toast.show");
         } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error hooking Toast: " + t.getMessage());
+            ModuleLog.e("Error hooking Toast: " + t.getMessage());
         }
 
-        // Hook ViewGroup.addView globally to catch message banners/toasts
-        try {
-            Class<?> viewGroupClass = XposedHelpers.findClass("android.view.ViewGroup", lpparam.classLoader);
+        logStage("startup", stageStart);
 
-            XposedHelpers.findAndHookMethod(viewGroupClass, "addView",
-                View.class,
-                new XC_MethodHook() {
+        // View-level hooks cost the most and have nothing to do before there is a
+        // window, so they wait for the first Activity
+        try {
+            activityCreateHooks = XposedBridge.hookAllMethods(
+                XposedHelpers.findClass("android.app.Instrumentation", classLoader),
+                "callActivityOnCreate", new XC_MethodHook() {
                     @Override
-                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        View child = (View) param.args[0];
-
-                        // Check if the view being added contains message text
-                        String text = extractTextFromView(child);
-                        if (text != null && isMessageRelatedText(text)) {
-                            XposedBridge.log("HideVoiceMsg: Blocked addView with message text: " + text);
-                            param.setResult(null);
-                        }
-
-                        // Also check content description
-                        CharSequence desc = child.getContentDescription();
-                        if (desc != null && isMessageRelatedText(desc.toString())) {
-                            XposedBridge.log("HideVoiceMsg: Blocked addView with message desc: " + desc);
-                            param.setResult(null);
-                        }
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        installViewStage(classLoader, recorder);
                     }
                 });
-
-            XposedBridge.log("HideVoiceMsg: Hooked ViewGroup.addView");
         } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error hooking ViewGroup.addView: " + t.getMessage());
+            ModuleLog.e("Error deferring view hooks: " + t.getMessage());
         }
+        if (activityCreateHooks == null || activityCreateHooks.isEmpty()) {
+            installViewStage(classLoader, recorder);
+        }
+    }
 
-        // Hook NotificationManager to block messaging notifications
-        try {
-            Class<?> notificationManagerClass = XposedHelpers.findClass("android.app.NotificationManager", lpparam.classLoader);
+    /**
+     * Second stage, run after the first Activity's onCreate. Its layout is
+     * inflated by then, so the menu hooks have already seen the navigation
+     * menu, but no window has been attached, measured or drawn yet.
+     */
+    private void installViewStage(ClassLoader classLoader, final HierarchyRecorder recorder) {
+        if (viewStageInstalled) {
+            return;
+        }
+        viewStageInstalled = true;
+        long stageStart = System.nanoTime();
+        if (activityCreateHooks != null) {
+            for (XC_MethodHook.Unhook unhook : activityCreateHooks) {
+                unhook.unhook();
+            }
+            activityCreateHooks = null;
+        }
 
-            XposedHelpers.findAndHookMethod(notificationManagerClass, "notify",
-                String.class, int.class, Notification.class,
+        // Debug mode: record each resumed window for offline replay
+        try {
+            XposedHelpers.findAndHookMethod("android.app.Activity", classLoader, "onResume",
                 new XC_MethodHook() {
                     @Override
-                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        Notification notification = (Notification) param.args[2];
-
-                        if (notification != null && isMessageRelatedNotification(notification)) {
-                            XposedBridge.log("HideVoiceMsg: Blocked messaging notification");
-                            param.setResult(null);
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        if (RuleStore.get().recordHierarchies) {
+                            recorder.scheduleCapture((android.app.Activity) param.thisObject,
+                                targetCache.messageResourceIds);
                         }
                     }
                 });
+        } catch (Throwable t) {
+            ModuleLog.e("Error hooking Activity.onResume: " + t.getMessage());
+        }
 
-            XposedHelpers.findAndHookMethod(notificationManagerClass, "notify",
-                int.class, Notification.class,
+        boolean cachedNavigation;
+        synchronized (targetCache.navigationClasses) {
+            cachedNavigation = !targetCache.navigationClasses.isEmpty();
+        }
+        if (cachedNavigation && hookCachedTargets(classLoader)) {
+            ModuleLog.i("Using cached targets, skipping discovery");
+        } else {
+            if (cachedNavigation) {
+                // Only a listed class that is gone invalidates the rest of the cache
+                ModuleLog.i("Cached targets no longer resolve, rediscovering");
+                targetCache = targetCache.reset();
+            }
+
+            if (navigationMenuFiltered) {
+                // The menu hooks already took Messages out of the navigation menu while the
+                // layout was inflated; any other filtered menu still needs the navigation view found
+                ModuleLog.i("Messages removed from the navigation menu at construction, skipping global View hooks");
+            } else {
+                // Global View hooks are only needed until the concrete navigation class is known
+                installGlobalViewHooks();
+            }
+        }
+
+        // Step the hook layers down once they are no longer pulling their weight
+        FrameWatchdog.install(new FrameWatchdog.Layers() {
+            @Override
+            public String describe() {
+                synchronized (globalViewHooks) {
+                    if (globalDrawHook != null) {
+                        return "global View hooks";
+                    }
+                    return globalViewHooks.isEmpty() ? "targeted hooks" : "global attach/measure";
+                }
+            }
+
+            @Override
+            public boolean stepDown() {
+                return stepDownHookLayer();
+            }
+        });
+
+        // Hook ViewGroup.addView globally to catch message banners/toasts
+        try {
+            XposedHelpers.findAndHookMethod(ViewGroup.class, "addView",
+                View.class,
                 new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        Notification notification = (Notification) param.args[1];
+                        long start = System.nanoTime();
+                        try {
+                            RuleSnapshot rules = RuleStore.get();
+                            if (!rules.addViewEnabled) {
+                                return;
+                            }
+                            View child = (View) param.args[0];
+
+                            // Children of a monitored navigation view get the full view check
+                            NavigationMonitor monitor = NavigationMonitor.forParent(param.thisObject);
+                            if (monitor != null && rules.classifier.isMessageView(child, AndroidViewTree.INSTANCE)) {
+                                if (ModuleLog.isLoggable(ModuleLog.DEBUG)) {
+                                    ModuleLog.d("addView.blocked", "Blocked addView of Messages tab");
+                                }
+                                param.setResult(null);
+                                return;
+                            }
+
+                            // Banners keep being discovered here once the global View hooks are gone
+                            if (rules.viewHooksEnabled && classFlags.get(child.getClass(), rules).isBanner()) {
+                                hookBannerClass(child.getClass());
+                            }
 
-                        if (notification != null && isMessageRelatedNotification(notification)) {
-                            XposedBridge.log("HideVoiceMsg: Blocked messaging notification (int version)");
-                            param.setResult(null);
+                            // Check the text and descriptions of the whole (bounded) subtree
+                            if (KeywordMatcher.isMatch(scanSubtree(child, rules.rules))) {
+                                if (ModuleLog.isLoggable(ModuleLog.DEBUG)) {
+                                    ModuleLog.d("addView.blocked", "Blocked addView with message content: " +
+                                                child.getClass().getName() + " | desc=" + child.getContentDescription());
+                                }
+                                param.setResult(null);
+                            }
+                        } finally {
+                            HookStats.record(HookStats.ADD_VIEW, start);
                         }
                     }
                 });
 
-            XposedBridge.log("HideVoiceMsg: Hooked NotificationManager.notify");
+            ModuleLog.i("Hooked ViewGroup.addView");
         } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error hooking NotificationManager: " + t.getMessage());
+            ModuleLog.e("Error hooking ViewGroup.addView: " + t.getMessage());
         }
+
+        installRecyclerViewHooks(classLoader);
+
+        logStage("view", stageStart);
     }
 
-    private String extractTextFromView(View view) {
+    // Rebound navigation items change their description without being re-added
+    private static final XC_MethodHook descriptionCallback = new XC_MethodHook() {
+        @Override
+        protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                NavigationMonitor.onContentDescriptionChanged((View) param.thisObject);
+            } finally {
+                HookStats.record(HookStats.SET_DESCRIPTION, start);
+            }
+        }
+    };
+
+    /** Hooks View.setContentDescription while navigation views are monitored. */
+    private static synchronized void installDescriptionHook() {
+        if (descriptionHook != null) {
+            return;
+        }
         try {
-            if (view instanceof android.widget.TextView) {
-                CharSequence text = ((android.widget.TextView) view).getText();
-                return text != null ? text.toString() : null;
-            } else if (view instanceof ViewGroup) {
-                ViewGroup vg = (ViewGroup) view;
-                for (int i = 0; i < vg.getChildCount(); i++) {
-                    String text = extractTextFromView(vg.getChildAt(i));
-                    if (text != null) {
-                        return text;
+            descriptionHook = XposedHelpers.findAndHookMethod(View.class, "setContentDescription",
+                CharSequence.class, descriptionCallback);
+            ModuleLog.i("Hooked View.setContentDescription");
+        } catch (Throwable t) {
+            ModuleLog.e("Error hooking View.setContentDescription: " + t.getMessage());
+        }
+    }
+
+    /** Called once no monitor is left, so every other view stops paying for the hook. */
+    private static synchronized void removeDescriptionHook() {
+        if (descriptionHook != null) {
+            descriptionHook.unhook();
+            descriptionHook = null;
+            ModuleLog.i("No navigation view monitored, removed View.setContentDescription hook");
+        }
+    }
+
+    /**
+     * Optional list layer: adapters set on a RecyclerView get their
+     * onCreateViewHolder/onBindViewHolder hooked, so view types known to hold
+     * message items are created collapsed. Each bind is still checked, and an
+     * item that turns out not to be a message is restored. The adapter hooks
+     * are only added while hook_recycler_view is on.
+     */
+    private void installRecyclerViewHooks(ClassLoader classLoader) {
+        Class<?> recyclerViewClass = XposedHelpers.findClassIfExists(RECYCLER_VIEW_CLASS, classLoader);
+        if (recyclerViewClass == null) {
+            ModuleLog.i("No RecyclerView in Google Voice, adapter hooks off");
+            return;
+        }
+        try {
+            Class<?> adapterClass = XposedHelpers.findClass(RECYCLER_VIEW_CLASS + "$Adapter", classLoader);
+            final Class<?> viewHolderClass = XposedHelpers.findClass(RECYCLER_VIEW_CLASS + "$ViewHolder", classLoader);
+            viewHolderItemView = XposedHelpers.findField(viewHolderClass, "itemView");
+
+            XC_MethodHook setAdapterHook = new XC_MethodHook() {
+                @Override
+                protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                    Object adapter = param.args[0];
+                    if (adapter == null || !RuleStore.get().recyclerViewEnabled) {
+                        return;
+                    }
+                    Class<?> clazz = adapter.getClass();
+                    if (discoveredClasses.add(clazz)) {
+                        hookOverride(clazz, "onCreateViewHolder", createViewHolderHook, ViewGroup.class, int.class);
+                        // The payload overload calls this one unless the adapter overrides it
+                        hookOverride(clazz, "onBindViewHolder", bindViewHolderHook, viewHolderClass, int.class);
                     }
                 }
-            }
+            };
+            XposedHelpers.findAndHookMethod(recyclerViewClass, "setAdapter", adapterClass, setAdapterHook);
+            XposedHelpers.findAndHookMethod(recyclerViewClass, "swapAdapter", adapterClass, boolean.class, setAdapterHook);
+
+            ModuleLog.i("Hooked RecyclerView.setAdapter");
         } catch (Throwable t) {
-            // Ignore
+            ModuleLog.e("Error hooking RecyclerView: " + t.getMessage());
         }
-        return null;
     }
 
-    private boolean isMessageRelatedText(String text) {
-        if (text == null) return false;
-        String lower = text.toLowerCase();
+    private final XC_MethodHook createViewHolderHook = new XC_MethodHook() {
+        @Override
+        protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                RuleSnapshot rules = RuleStore.get();
+                Object holder = param.getResult();
+                if (!rules.recyclerViewEnabled || holder == null) {
+                    return;
+                }
+                itemTypeVerdicts.onCreated(holder, (Integer) param.args[1]);
+                if (itemTypeVerdicts.verdict(param.thisObject, holder, rules) == ItemTypeVerdictCache.BLOCKED) {
+                    itemTypeVerdicts.collapse((View) viewHolderItemView.get(holder));
+                }
+            } catch (Throwable t) {
+                ModuleLog.e("adapter.create.error", "Error in onCreateViewHolder hook: " + t.getMessage());
+            } finally {
+                HookStats.record(HookStats.ADAPTER, start);
+            }
+        }
+    };
 
-        // Exclude call/voicemail related
-        if (lower.contains("call") || lower.contains("voicemail") || lower.contains("dial")) {
-            return false;
+    private final XC_MethodHook bindViewHolderHook = new XC_MethodHook() {
+        @Override
+        protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                RuleSnapshot rules = RuleStore.get();
+                Object holder = param.args[0];
+                if (!rules.recyclerViewEnabled || holder == null) {
+                    return;
+                }
+                // Look at the item now that it is bound; the holder may show a different row than before
+                View itemView = (View) viewHolderItemView.get(holder);
+                int verdict = itemTypeVerdicts.verdict(param.thisObject, holder, rules);
+                if (verdict == ItemTypeVerdictCache.BLOCKED) {
+                    itemTypeVerdicts.verify(itemView);
+                } else if (verdict == ItemTypeVerdictCache.UNKNOWN
+                        && itemTypeVerdicts.sample(param.thisObject, holder, itemView, rules)
+                        == ItemTypeVerdictCache.BLOCKED) {
+                    itemTypeVerdicts.collapse(itemView);
+                } else {
+                    // Not blocked (anymore); undo a collapse made under older rules
+                    itemTypeVerdicts.restore(itemView);
+                }
+            } catch (Throwable t) {
+                ModuleLog.e("adapter.bind.error", "Error in onBindViewHolder hook: " + t.getMessage());
+            } finally {
+                HookStats.record(HookStats.ADAPTER, start);
+            }
         }
+    };
 
-        // Check for message-related keywords
-        return lower.contains("message") || lower.contains("text") ||
-               lower.contains("sms") || lower.contains("mms") ||
-               lower.contains("conversation") || lower.contains("chat");
+    private static void logStage(String stage, long startNanos) {
+        ModuleLog.i("Installed " + stage + " hooks in " + (System.nanoTime() - startNanos) / 1000 + "us");
     }
 
-    private boolean isMessageRelatedNotification(Notification notification) {
+    private static long getVersionCode(ApplicationInfo appInfo) {
         try {
-            // Check notification title and text
-            if (notification.extras != null) {
-                CharSequence title = notification.extras.getCharSequence("android.title");
-                CharSequence text = notification.extras.getCharSequence("android.text");
-                CharSequence bigText = notification.extras.getCharSequence("android.bigText");
-
-                String[] contents = new String[] {
-                    title != null ? title.toString().toLowerCase() : "",
-                    text != null ? text.toString().toLowerCase() : "",
-                    bigText != null ? bigText.toString().toLowerCase() : ""
-                };
-
-                for (String content : contents) {
-                    if (content.contains("message") || content.contains("text") ||
-                        content.contains("conversation") || content.contains("sms") ||
-                        content.contains("mms")) {
-                        return true;
+            return XposedHelpers.getLongField(appInfo, "longVersionCode");
+        } catch (Throwable ignored) {
+        }
+        try {
+            return XposedHelpers.getIntField(appInfo, "versionCode");
+        } catch (Throwable ignored) {
+        }
+        // Fall back to the APK timestamp, which also changes on every update
+        return new File(appInfo.sourceDir).lastModified();
+    }
+
+    /** Hooks every cached navigation class; returns false if one of them no longer resolves. */
+    private boolean hookCachedTargets(ClassLoader classLoader) {
+        List<String> classNames;
+        synchronized (targetCache.navigationClasses) {
+            classNames = new ArrayList<>(targetCache.navigationClasses);
+        }
+
+        for (String className : classNames) {
+            Class<?> navigationClass = XposedHelpers.findClassIfExists(className, classLoader);
+            if (navigationClass == null || !hookNavigationClass(navigationClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void installMenuHooks(ClassLoader classLoader) {
+        try {
+            Class<?> menuInflaterClass = XposedHelpers.findClass("android.view.MenuInflater", classLoader);
+
+            // AppCompat and Material use their own inflater subclasses, which override inflate
+            XposedHelpers.findAndHookConstructor(menuInflaterClass, Context.class, new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    Class<?> inflaterClass = param.thisObject.getClass();
+                    if (discoveredClasses.add(inflaterClass)) {
+                        hookOverride(inflaterClass, "inflate", menuInflateHook, int.class, Menu.class);
                     }
                 }
+            });
+            XposedHelpers.findAndHookMethod(menuInflaterClass, "inflate", int.class, Menu.class, menuInflateHook);
+
+            ModuleLog.i("Hooked MenuInflater");
+        } catch (Throwable t) {
+            ModuleLog.e("Error hooking MenuInflater: " + t.getMessage());
+        }
+
+        // Menus built in code never pass through inflate, so filter additions from the start
+        for (String className : MENU_BUILDER_CLASSES) {
+            Class<?> menuClass = XposedHelpers.findClassIfExists(className, classLoader);
+            if (menuClass != null) {
+                hookMenuAdd(menuClass);
             }
+        }
+    }
+
+    /** Filters Messages items out of a menu class's add overloads as they are added. */
+    private void hookMenuAdd(Class<?> menuClass) {
+        if (discoveredClasses.add(menuClass)) {
+            hookOverride(menuClass, "add", menuAddHook, CharSequence.class);
+            hookOverride(menuClass, "add", menuAddHook, int.class);
+            hookOverride(menuClass, "add", menuAddHook, int.class, int.class, int.class, CharSequence.class);
+            hookOverride(menuClass, "add", menuAddHook, int.class, int.class, int.class, int.class);
+        }
+    }
 
-            // Check notification channel ID
-            if (android.os.Build.VERSION.SDK_INT >= 26) { // Android O
-                String channelId = notification.getChannelId();
-                if (channelId != null) {
-                    String channelLower = channelId.toLowerCase();
-                    if (channelLower.contains("message") || channelLower.contains("text") ||
-                        channelLower.contains("conversation") || channelLower.contains("sms") ||
-                        channelLower.contains("mms")) {
-                        return true;
+    private final XC_MethodHook menuInflateHook = new XC_MethodHook() {
+        @Override
+        protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                RuleSnapshot rules = RuleStore.get();
+                Menu menu = (Menu) param.args[1];
+                if (!rules.menuEnabled || menu == null) {
+                    return;
+                }
+                if (removeMessageItems(menu, rules) > 0) {
+                    filteredMenus.put(menu, Boolean.TRUE);
+                    if (rules.isNavigationClass(menu.getClass().getName())) {
+                        navigationMenuFiltered = true;
                     }
+
+                    // Items added later to this kind of menu are filtered as they are added
+                    hookMenuAdd(menu.getClass());
                 }
+            } catch (Throwable t) {
+                ModuleLog.e("menu.inflate.error", "Error filtering inflated menu: " + t.getMessage());
+            } finally {
+                HookStats.record(HookStats.MENU_INFLATE, start);
             }
+        }
+    };
 
-        } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error checking notification: " + t.getMessage());
+    private final XC_MethodHook menuAddHook = new XC_MethodHook() {
+        @Override
+        protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                RuleSnapshot rules = RuleStore.get();
+                MenuItem item = (MenuItem) param.getResult();
+                if (!rules.menuEnabled || item == null || !isMessageMenuItem(item, rules)) {
+                    return;
+                }
+                Menu menu = (Menu) param.thisObject;
+                // A menu built in code counts as filtered at construction as well
+                filteredMenus.put(menu, Boolean.TRUE);
+                if (rules.isNavigationClass(menu.getClass().getName())) {
+                    navigationMenuFiltered = true;
+                }
+                if (item.getItemId() != Menu.NONE) {
+                    targetCache.addMenuItemId(item.getItemId());
+                    menu.removeItem(item.getItemId());
+                } else {
+                    // removeItem(NONE) could remove another item without an ID
+                    item.setVisible(false);
+                }
+                if (ModuleLog.isLoggable(ModuleLog.DEBUG)) {
+                    ModuleLog.d("menu.add", "Filtered added menu item: " + item.getTitle());
+                }
+            } catch (Throwable t) {
+                ModuleLog.e("menu.add.error", "Error filtering menu item: " + t.getMessage());
+            } finally {
+                HookStats.record(HookStats.MENU_ADD, start);
+            }
         }
+    };
 
-        return false;
+    private boolean isMessageMenuItem(MenuItem item, RuleSnapshot rules) {
+        int itemId = item.getItemId();
+        return (itemId != Menu.NONE && targetCache.menuItemIds.contains(itemId))
+            || rules.classifier.isMessageText(item.getTitle());
     }
 
-    private void startContinuousMonitoring(View navigationView) {
-        // Set up a ViewTreeObserver to monitor for changes
+    /** Removes Messages items from a freshly built menu and returns how many were removed. */
+    private int removeMessageItems(Menu menu, RuleSnapshot rules) {
+        int removed = 0;
+        for (int i = menu.size() - 1; i >= 0; i--) {
+            MenuItem item = menu.getItem(i);
+            if (item.getItemId() != Menu.NONE && isMessageMenuItem(item, rules)) {
+                ModuleLog.i("Removed menu item at construction: " + item.getTitle());
+                targetCache.addMenuItemId(item.getItemId());
+                menu.removeItem(item.getItemId());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * The navigation view's menu was built without Messages, so there is
+     * nothing left to remove after layout: stop the monitors and the global
+     * View hooks.
+     */
+    private void onMenuFiltered() {
+        if (menuFiltered) {
+            return;
+        }
+        menuFiltered = true;
+        monitoredViews.clear();
+        removeGlobalViewHooks();
+        ModuleLog.i("Menu built without Messages, navigation monitoring off");
+    }
+
+    /** Steps back up to navigation monitoring if a Messages item shows up in the menu again. */
+    private void checkMenuStillFiltered(View navigationView, RuleSnapshot rules) {
+        Menu menu;
+        try {
+            menu = (Menu) XposedHelpers.callMethod(navigationView, "getMenu");
+        } catch (Throwable t) {
+            return;
+        }
+        if (menu == null) {
+            return;
+        }
+        for (int i = 0; i < menu.size(); i++) {
+            MenuItem item = menu.getItem(i);
+            if (item.isVisible() && isMessageMenuItem(item, rules)) {
+                ModuleLog.i("Messages item reappeared, resuming navigation monitoring");
+                filteredMenus.remove(menu);
+                menuFiltered = false;
+                ensureMonitored(navigationView);
+                return;
+            }
+        }
+    }
+
+    private void installGlobalViewHooks() {
+        // Framework class shared by every class loader, so it needs no lookup
+        Class<?> viewClass = View.class;
+
+        // Hook View.onAttachedToWindow to catch when navigation views are added
         try {
-            navigationView.getViewTreeObserver().addOnGlobalLayoutListener(
-                new ViewTreeObserver.OnGlobalLayoutListener() {
+            globalViewHooks.add(XposedHelpers.findAndHookMethod(viewClass, "onAttachedToWindow",
+                new XC_MethodHook() {
                     @Override
-                    public void onGlobalLayout() {
+                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                        long start = System.nanoTime();
                         try {
-                            hideMessageItemsFromNavigation(navigationView);
-                        } catch (Throwable t) {
-                            XposedBridge.log("HideVoiceMsg: Error in layout listener: " + t.getMessage());
+                            RuleSnapshot rules = RuleStore.get();
+                            if (!rules.viewHooksEnabled) {
+                                return;
+                            }
+                            View view = (View) param.thisObject;
+
+                            // Queue message views to be hidden before the next traversal;
+                            // until then the measure hook keeps them at zero size
+                            if (verdictCache.shouldHide(view, rules) && HideScheduler.schedule(view)) {
+                                if (ModuleLog.isLoggable(ModuleLog.DEBUG)) {
+                                    ModuleLog.d("attach.hidden", "Queued message view hide on attach: " + view.getContentDescription());
+                                }
+                            }
+                        } finally {
+                            HookStats.record(HookStats.ATTACH, start);
                         }
                     }
-                }
-            );
 
-            XposedBridge.log("HideVoiceMsg: Set up continuous monitoring for: " + navigationView.getClass().getName());
+                    @Override
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        long start = System.nanoTime();
+                        try {
+                            RuleSnapshot rules = RuleStore.get();
+                            if (!rules.viewHooksEnabled) {
+                                return;
+                            }
+                            View view = (View) param.thisObject;
+                            ClassFlagsCache.ClassInfo info = classFlags.get(view.getClass(), rules);
+
+                            // Check if this is a bottom navigation view
+                            if (info.isNavigation()) {
+                                ModuleLog.i("Found navigation view: " + info.className);
+                                hookNavigationClass(view.getClass());
+                                ensureMonitored(view);
+                            } else if (info.isBanner()) {
+                                hookBannerClass(view.getClass());
+                            }
+                        } finally {
+                            HookStats.record(HookStats.ATTACH, start);
+                        }
+                    }
+                }));
+
+            ModuleLog.i("Hooked View.onAttachedToWindow");
         } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error setting up monitoring: " + t.getMessage());
+            ModuleLog.e("Error hooking View: " + t.getMessage());
         }
 
-        // Hook ViewGroup.addView to intercept message views being added
-        if (navigationView instanceof ViewGroup) {
-            try {
-                XposedHelpers.findAndHookMethod(ViewGroup.class, "addView",
-                    View.class,
-                    new XC_MethodHook() {
-                        @Override
-                        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                            if (param.thisObject == navigationView) {
-                                View child = (View) param.args[0];
-                                CharSequence desc = child.getContentDescription();
-                                if (desc != null && desc.toString().toLowerCase().contains("message")) {
-                                    XposedBridge.log("HideVoiceMsg: Blocked addView of Messages tab");
-                                    param.setResult(null);
+        // Hook View's measure method to prevent message views from being measured
+        try {
+            globalViewHooks.add(XposedHelpers.findAndHookMethod(viewClass, "measure",
+                int.class, int.class,
+                new XC_MethodHook() {
+                    @Override
+                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                        long start = System.nanoTime();
+                        try {
+                            RuleSnapshot rules = RuleStore.get();
+                            View view = (View) param.thisObject;
+
+                            if (rules.viewHooksEnabled && verdictCache.shouldHide(view, rules)) {
+                                // Force the view to have 0 dimensions; the visibility change waits
+                                // for the batch so this measure pass is not disturbed
+                                if (HideScheduler.schedule(view)) {
+                                    restoreGlobalDrawHook();
                                 }
+                                param.args[0] = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.EXACTLY);
+                                param.args[1] = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.EXACTLY);
                             }
+                        } finally {
+                            HookStats.record(HookStats.MEASURE, start);
                         }
-                    });
-            } catch (Throwable t) {
-                XposedBridge.log("HideVoiceMsg: Error hooking addView: " + t.getMessage());
+                    }
+                }));
+
+            ModuleLog.i("Hooked View.measure");
+        } catch (Throwable t) {
+            ModuleLog.e("Error hooking measure: " + t.getMessage());
+        }
+
+        // Hook View's draw method to prevent rendering
+        try {
+            viewDrawMethod = XposedHelpers.findMethodExact(viewClass, "draw", android.graphics.Canvas.class);
+
+            synchronized (globalViewHooks) {
+                globalDrawHook = XposedBridge.hookMethod(viewDrawMethod, globalDrawCallback);
             }
+
+            ModuleLog.i("Hooked View.draw");
+        } catch (Throwable t) {
+            ModuleLog.e("Error hooking draw: " + t.getMessage());
         }
+    }
 
-        // Do immediate check
-        hideMessageItemsFromNavigation(navigationView);
+    private final XC_MethodHook globalDrawCallback = new XC_MethodHook() {
+        @Override
+        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                RuleSnapshot rules = RuleStore.get();
+                View view = (View) param.thisObject;
+
+                if (rules.viewHooksEnabled && verdictCache.shouldHide(view, rules)) {
+                    // Don't draw the view at all
+                    param.setResult(null);
+                }
+            } finally {
+                HookStats.record(HookStats.DRAW, start);
+            }
+        }
+    };
+
+    private void removeGlobalViewHooks() {
+        synchronized (globalViewHooks) {
+            if (globalViewHooks.isEmpty() && globalDrawHook == null) {
+                return;
+            }
+            for (XC_MethodHook.Unhook unhook : globalViewHooks) {
+                unhook.unhook();
+            }
+            globalViewHooks.clear();
+            if (globalDrawHook != null) {
+                globalDrawHook.unhook();
+                globalDrawHook = null;
+            }
+        }
+        ModuleLog.i("Discovery finished, removed global View hooks");
+    }
+
+    /**
+     * Drops the global draw hook, which measure and attach already cover by
+     * hiding views. Attach and measure stay until a navigation view is
+     * filtered, since attach is how that view gets discovered.
+     */
+    private boolean stepDownHookLayer() {
+        synchronized (globalViewHooks) {
+            if (globalDrawHook == null) {
+                return false;
+            }
+            globalDrawHook.unhook();
+            globalDrawHook = null;
+            return true;
+        }
+    }
 
-        // Also do very frequent periodic checks
-        final Runnable periodicCheck = new Runnable() {
+    /** A message view still reached measure, so bring the draw layer back while discovery runs. */
+    private void restoreGlobalDrawHook() {
+        synchronized (globalViewHooks) {
+            if (globalDrawHook != null || globalViewHooks.isEmpty() || viewDrawMethod == null) {
+                return;
+            }
+            globalDrawHook = XposedBridge.hookMethod(viewDrawMethod, globalDrawCallback);
+        }
+        ModuleLog.i("Message view seen, restored global View.draw hook");
+    }
+
+    /**
+     * Hooks onMeasure/onLayout of a discovered navigation class so new
+     * instances are picked up without the global View hooks, then drops them.
+     */
+    private boolean hookNavigationClass(final Class<?> navigationClass) {
+        if (!discoveredClasses.add(navigationClass)) {
+            return true;
+        }
+
+        XC_MethodHook monitorHook = new XC_MethodHook() {
             @Override
-            public void run() {
+            protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                long start = System.nanoTime();
                 try {
-                    if (navigationView.isAttachedToWindow()) {
-                        hideMessageItemsFromNavigation(navigationView);
-                        handler.postDelayed(this, 50); // Check every 50ms for instant hiding
+                    RuleSnapshot rules = RuleStore.get();
+                    if (!rules.viewHooksEnabled || !navigationClass.isInstance(param.thisObject)) {
+                        return;
+                    }
+                    View view = (View) param.thisObject;
+                    if (menuFiltered) {
+                        // Layout is rare here, so check that Messages has not come back
+                        checkMenuStillFiltered(view, rules);
                     } else {
-                        monitoredViews.remove(navigationView);
+                        ensureMonitored(view);
                     }
-                } catch (Throwable t) {
-                    XposedBridge.log("HideVoiceMsg: Error in periodic check: " + t.getMessage());
+                } finally {
+                    HookStats.record(HookStats.TARGET_NAVIGATION, start);
                 }
             }
         };
 
-        handler.post(periodicCheck);
+        boolean hooked = hookOverride(navigationClass, "onMeasure", monitorHook, int.class, int.class);
+        hooked |= hookOverride(navigationClass, "onLayout", monitorHook,
+            boolean.class, int.class, int.class, int.class, int.class);
+
+        if (hooked) {
+            ModuleLog.i("Targeted hooks installed for: " + navigationClass.getName());
+            targetCache.addNavigationClass(navigationClass.getName());
+            removeGlobalViewHooks();
+        }
+        return hooked;
     }
 
-    private boolean isMessageRelatedView(View view) {
-        try {
-            String className = view.getClass().getName();
-
-            // Check content description
-            CharSequence contentDesc = view.getContentDescription();
-            if (contentDesc != null) {
-                String descStr = contentDesc.toString().toLowerCase();
-                // Exclude call-related items explicitly
-                if (descStr.contains("call") || descStr.contains("dial") || descStr.contains("phone")) {
-                    return false;
+    /** Hooks onMeasure/dispatchDraw of a banner or snackbar container class. */
+    private void hookBannerClass(final Class<?> bannerClass) {
+        if (!discoveredClasses.add(bannerClass)) {
+            return;
+        }
+
+        hookOverride(bannerClass, "onMeasure", new XC_MethodHook() {
+            @Override
+            protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                long start = System.nanoTime();
+                try {
+                    RuleSnapshot rules = RuleStore.get();
+                    if (!rules.viewHooksEnabled || !bannerClass.isInstance(param.thisObject)) {
+                        return;
+                    }
+                    View view = (View) param.thisObject;
+                    if (verdictCache.shouldHide(view, rules)
+                            || KeywordMatcher.isMatch(scanSubtree(view, rules.rules))) {
+                        HideScheduler.schedule(view);
+                        param.args[0] = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.EXACTLY);
+                        param.args[1] = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.EXACTLY);
+                    }
+                } finally {
+                    HookStats.record(HookStats.TARGET_BANNER, start);
                 }
-                if (descStr.contains("message") || descStr.contains("text") ||
-                    descStr.contains("conversation") || descStr.contains("sms") || descStr.contains("chat")) {
-                    XposedBridge.log("HideVoiceMsg: Detected message view by contentDesc: " + descStr);
-                    return true;
+            }
+        }, int.class, int.class);
+
+        hookOverride(bannerClass, "dispatchDraw", new XC_MethodHook() {
+            @Override
+            protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                long start = System.nanoTime();
+                try {
+                    RuleSnapshot rules = RuleStore.get();
+                    if (rules.viewHooksEnabled && bannerClass.isInstance(param.thisObject)
+                            && verdictCache.shouldHide((View) param.thisObject, rules)) {
+                        param.setResult(null);
+                    }
+                } finally {
+                    HookStats.record(HookStats.TARGET_BANNER, start);
                 }
             }
+        }, android.graphics.Canvas.class);
 
-            // Check tag
-            Object tag = view.getTag();
-            if (tag != null) {
-                String tagStr = tag.toString().toLowerCase();
-                // Exclude call-related items explicitly
-                if (tagStr.contains("call") || tagStr.contains("dial") || tagStr.contains("phone")) {
-                    return false;
+        ModuleLog.i("Targeted hooks installed for: " + bannerClass.getName());
+    }
+
+    /**
+     * Hooks the closest override of a method below the framework classes.
+     * That override may be inherited from a library class such as a
+     * ConstraintLayout, so it also runs for unrelated views; callbacks that
+     * are meant for clazz alone must check param.thisObject themselves.
+     */
+    /** Combined KeywordMatcher flags for the text and descriptions below root. */
+    private static int scanSubtree(View root, KeywordMatcher rules) {
+        if (rules != subtreeRules) {
+            subtreeRules = rules;
+            subtreeScanner = new SubtreeScanner<>(rules, AndroidViewTree.INSTANCE,
+                SubtreeScanner.DEFAULT_MAX_DEPTH, SubtreeScanner.DEFAULT_MAX_NODES);
+        }
+        HookStats.viewsClassified.increment();
+        return subtreeScanner.scan(root);
+    }
+
+    private boolean hookOverride(Class<?> clazz, String name, XC_MethodHook callback, Class<?>... parameterTypes) {
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            String className = c.getName();
+            if (className.startsWith("android.") || className.startsWith("java.")) {
+                return false;
+            }
+            try {
+                Method method = c.getDeclaredMethod(name, parameterTypes);
+                if (hookedMethods.add(Arrays.<Object>asList(method, callback))) {
+                    XposedBridge.hookMethod(method, callback);
                 }
-                if (tagStr.contains("message") || tagStr.contains("text") ||
-                    tagStr.contains("conversation") || tagStr.contains("sms") || tagStr.contains("chat")) {
-                    XposedBridge.log("HideVoiceMsg: Detected message view by tag: " + tagStr);
-                    return true;
+                return true;
+            } catch (NoSuchMethodException ignored) {
+            } catch (Throwable t) {
+                ModuleLog.e("Error hooking " + className + "." + name + ": " + t.getMessage());
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void ensureMonitored(View view) {
+        if (menuFiltered) {
+            return;
+        }
+        if (view.isAttachedToWindow() && !monitoredViews.contains(view)) {
+            startContinuousMonitoring(view);
+        }
+    }
+
+    private void classifyChannel(NotificationChannel channel, RuleSnapshot rules) {
+        if (channel == null || !rules.notificationsEnabled) {
+            return;
+        }
+        try {
+            if (channelVerdicts.classify(channel, rules.classifier, rules.disableChannels)) {
+                targetCache.addChannelId(channel.getId());
+                if (rules.disableChannels) {
+                    ModuleLog.i("Creating message channel disabled: " + channel.getId());
                 }
             }
+        } catch (Throwable t) {
+            ModuleLog.e("channel.error", "Error classifying channel: " + t.getMessage());
+        }
+    }
 
-            // Check resource name
-            try {
-                int viewId = view.getId();
-                if (viewId != View.NO_ID) {
-                    String resourceName = view.getResources().getResourceEntryName(viewId).toLowerCase();
-                    // Exclude call-related items explicitly
-                    if (resourceName.contains("call") || resourceName.contains("dial") || resourceName.contains("phone")) {
-                        return false;
-                    }
-                    if (resourceName.contains("message") || resourceName.contains("text") ||
-                        resourceName.contains("conversation") || resourceName.contains("sms") || resourceName.contains("chat")) {
-                        XposedBridge.log("HideVoiceMsg: Detected message view by resourceName: " + resourceName);
-                        return true;
-                    }
+    private boolean isMessageRelatedNotification(Notification notification, RuleSnapshot rules) {
+        if (!rules.notificationsEnabled) {
+            return false;
+        }
+        try {
+            // Known channels are decided by a single lookup
+            String channelId = notification.getChannelId();
+            if (channelId != null) {
+                if (rules.channelIds.contains(channelId)) {
+                    return true;
+                }
+                Boolean verdict = channelVerdicts.get(channelId, rules.classifier);
+                if (verdict != null) {
+                    HookStats.cacheHits.increment();
+                    return verdict;
+                }
+                if (rules.classifier.isMessageText(channelId)) {
+                    channelVerdicts.block(channelId, rules.classifier);
+                    targetCache.addChannelId(channelId);
+                    return true;
                 }
-            } catch (Throwable ignored) {
             }
 
+            // Channel-less or unknown channel: fall back to the notification text
+            if (notification.extras != null) {
+                return rules.classifier.isMessageNotification(
+                    notification.extras.getCharSequence("android.title"),
+                    notification.extras.getCharSequence("android.text"),
+                    notification.extras.getCharSequence("android.bigText"),
+                    channelId);
+            }
         } catch (Throwable t) {
-            // Ignore
+            ModuleLog.e("notification.error", "Error checking notification: " + t.getMessage());
         }
 
         return false;
     }
 
-    private void hideMessageItemsFromNavigation(View navigationView) {
+    private void startContinuousMonitoring(View navigationView) {
+        // Re-run the hide pass only when the navigation hierarchy or layout changes
+        NavigationMonitor monitor = new NavigationMonitor(navigationView,
+            new NavigationMonitor.Pass() {
+                private RuleSnapshot lastRules;
+
+                @Override
+                public void run(View view, List<View> dirtyRoots, Collection<View> hiddenViews) {
+                    RuleSnapshot rules = RuleStore.get();
+                    if (rules != lastRules) {
+                        // Verdicts may have changed anywhere
+                        lastRules = rules;
+                        dirtyRoots = null;
+                    }
+                    hideMessageItemsFromNavigation(view, dirtyRoots, hiddenViews);
+                }
+            });
+
         try {
-            XposedBridge.log("HideVoiceMsg: Attempting to hide messages from: " + navigationView.getClass().getName());
+            // The registry stops the monitor and drops the view when it detaches
+            if (!monitoredViews.register(navigationView, monitor)) {
+                return;
+            }
+            installDescriptionHook();
+            ModuleLog.i("Set up continuous monitoring for: " + navigationView.getClass().getName());
+        } catch (Throwable t) {
+            ModuleLog.e("Error setting up monitoring: " + t.getMessage());
+        }
+
+        // Do immediate check
+        monitor.runNow();
+    }
+
+    private void hideMessageItemsFromNavigation(View navigationView, List<View> dirtyRoots,
+                                                Collection<View> hiddenViews) {
+        long start = System.nanoTime();
+        try {
+            RuleSnapshot rules = RuleStore.get();
+            if (!rules.viewHooksEnabled) {
+                return;
+            }
+            if (ModuleLog.isLoggable(ModuleLog.VERBOSE)) {
+                ModuleLog.v("nav.pass", "Attempting to hide messages from: " + navigationView.getClass().getName());
+            }
 
             // Try to get the menu from the navigation view
             try {
                 Menu menu = (Menu) XposedHelpers.callMethod(navigationView, "getMenu");
 
+                if (menu != null && filteredMenus.containsKey(menu)) {
+                    onMenuFiltered();
+                    return;
+                }
+
                 if (menu != null) {
-                    XposedBridge.log("HideVoiceMsg: Found menu with " + menu.size() + " items");
+                    // Covers navigation menu classes outside the known MenuBuilder hierarchy
+                    hookMenuAdd(menu.getClass());
+
+                    // Items removed for this Google Voice version before
+                    synchronized (targetCache.menuItemIds) {
+                        for (int itemId : targetCache.menuItemIds) {
+                            // Caches written before NONE was skipped may still hold it
+                            if (itemId != Menu.NONE && menu.findItem(itemId) != null) {
+                                menu.removeItem(itemId);
+                            }
+                        }
+                    }
+
+                    if (ModuleLog.isLoggable(ModuleLog.VERBOSE)) {
+                        ModuleLog.v("nav.menu", "Found menu with " + menu.size() + " items");
+                    }
 
                     for (int i = menu.size() - 1; i >= 0; i--) {
                         MenuItem item = menu.getItem(i);
                         CharSequence title = item.getTitle();
 
                         if (title != null) {
-                            String titleStr = title.toString().toLowerCase();
-                            XposedBridge.log("HideVoiceMsg: Found menu item: " + title);
+                            if (ModuleLog.isLoggable(ModuleLog.VERBOSE)) {
+                                ModuleLog.v("nav.menuItem", "Found menu item: " + title);
+                            }
 
-                            if (titleStr.contains("message") || titleStr.contains("text") ||
-                                titleStr.contains("conversation") || titleStr.contains("sms")) {
-                                XposedBridge.log("HideVoiceMsg: Removing Messages menu item: " + title);
-                                menu.removeItem(item.getItemId());
+                            if (rules.classifier.isMessageText(title)) {
+                                if (ModuleLog.isLoggable(ModuleLog.DEBUG)) {
+                                    ModuleLog.d("nav.remove", "Removing Messages menu item: " + title);
+                                }
+                                if (item.getItemId() != Menu.NONE) {
+                                    targetCache.addMenuItemId(item.getItemId());
+                                    menu.removeItem(item.getItemId());
+                                } else {
+                                    // removeItem(NONE) could remove another item without an ID
+                                    item.setVisible(false);
+                                }
                             }
                         }
                     }
                 }
             } catch (Throwable t) {
-                XposedBridge.log("HideVoiceMsg: Error accessing menu: " + t.getMessage());
+                ModuleLog.e("nav.menu.error", "Error accessing menu: " + t.getMessage());
             }
 
-            // Also search child views for message-related views and hide them
+            // Also search the changed child views for message-related views and hide them
             if (navigationView instanceof ViewGroup) {
-                hideMessageViewsRecursively((ViewGroup) navigationView);
+                hideMessageViews((ViewGroup) navigationView, dirtyRoots, hiddenViews, rules);
             }
 
         } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error in hideMessageItemsFromNavigation: " + t.getMessage());
+            ModuleLog.e("nav.pass.error", "Error in hideMessageItemsFromNavigation: " + t.getMessage());
+        } finally {
+            HookStats.record(HookStats.NAVIGATION_PASS, start);
         }
     }
 
-    private void hideMessageViewsRecursively(ViewGroup viewGroup) {
+    private void hideMessageViews(ViewGroup navigationView, List<View> dirtyRoots,
+                                  Collection<View> hiddenViews, RuleSnapshot rules) {
         try {
-            for (int i = 0; i < viewGroup.getChildCount(); i++) {
-                View child = viewGroup.getChildAt(i);
-
-                // Get all identifiable info about the view
-                CharSequence contentDesc = child.getContentDescription();
-                Object tag = child.getTag();
-                String resourceName = "";
-
-                try {
-                    int viewId = child.getId();
-                    if (viewId != View.NO_ID) {
-                        resourceName = child.getResources().getResourceEntryName(viewId).toLowerCase();
-                    }
-                } catch (Throwable ignored) {
-                }
-
-                // Build a combined string for checking
-                StringBuilder combined = new StringBuilder();
-                if (contentDesc != null) combined.append(contentDesc.toString().toLowerCase()).append(" ");
-                if (tag != null) combined.append(tag.toString().toLowerCase()).append(" ");
-                combined.append(resourceName);
-
-                String combinedStr = combined.toString();
-
-                // Explicitly exclude call, voicemail, and settings related items
-                if (combinedStr.contains("call") || combinedStr.contains("dial") ||
-                    combinedStr.contains("phone") || combinedStr.contains("voicemail") ||
-                    combinedStr.contains("setting") || combinedStr.contains("account") ||
-                    combinedStr.contains("search")) {
-                    // Don't hide - this is not a message view
-                    if (child instanceof ViewGroup) {
-                        hideMessageViewsRecursively((ViewGroup) child);
-                    }
-                    continue;
-                }
-
-                // Check if this is message-related
-                boolean isMessageView = false;
-                if (combinedStr.contains("message") || combinedStr.contains("text message") ||
-                    combinedStr.contains("conversation") || combinedStr.contains("sms") ||
-                    combinedStr.contains("mms") || combinedStr.contains("chat")) {
-                    isMessageView = true;
-                }
-
-                if (isMessageView) {
-                    // Hide immediately regardless of current visibility
-                    if (child.getVisibility() != View.GONE) {
-                        XposedBridge.log("HideVoiceMsg: Hiding message view: " + child.getClass().getName() +
-                                        " | desc=" + (contentDesc != null ? contentDesc : "null") +
-                                        " | tag=" + (tag != null ? tag : "null") +
-                                        " | res=" + resourceName);
-                        child.setVisibility(View.GONE);
-
-                        // Also set alpha to 0 to prevent any flicker
-                        try {
-                            child.setAlpha(0f);
-                        } catch (Throwable ignored) {}
-                    }
-
-                    // Don't traverse children if we're hiding the parent
-                    continue;
-                }
-
-                // Recursively check child views
-                if (child instanceof ViewGroup) {
-                    hideMessageViewsRecursively((ViewGroup) child);
+            MessageClassifier classifier = rules.classifier;
+            if (dirtyRoots == null) {
+                classifier.hideMessageChildren((View) navigationView, AndroidViewTree.INSTANCE, hiddenViews);
+                return;
+            }
+            for (int i = 0; i < dirtyRoots.size(); i++) {
+                View root = dirtyRoots.get(i);
+                if (root == navigationView) {
+                    classifier.hideMessageChildren(root, AndroidViewTree.INSTANCE, hiddenViews);
+                } else {
+                    classifier.hideMessageSubtree(root, AndroidViewTree.INSTANCE, hiddenViews);
                 }
             }
         } catch (Throwable t) {
-            XposedBridge.log("HideVoiceMsg: Error in hideMessageViewsRecursively: " + t.getMessage());
+            ModuleLog.e("nav.walk.error", "Error in hideMessageViews: " + t.getMessage());
         }
     }
 
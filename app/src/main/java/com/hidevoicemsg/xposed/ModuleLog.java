@@ -0,0 +1,172 @@
+package com.hidevoicemsg.xposed;
+
+import de.robv.android.xposed.XposedBridge;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Leveled logging for the hooks. Messages go into a small ring buffer and are
+ * written to the LSPosed log in batches from the background thread, never
+ * from Google Voice's UI thread. Messages logged with a key are rate limited
+ * per key, and repeats of the same message are collapsed into a count.
+ *
+ * Hot paths must check isLoggable() before building a message, so at the
+ * default level they do no log work at all.
+ */
+final class ModuleLog {
+
+    static final int ERROR = 0;
+    static final int WARN = 1;
+    static final int INFO = 2;
+    static final int DEBUG = 3;
+    static final int VERBOSE = 4;
+
+    static final int DEFAULT_LEVEL = INFO;
+
+    private static final String PREFIX = "HideVoiceMsg: ";
+    private static final int BUFFER_SIZE = 256;
+    private static final long FLUSH_DELAY_MS = 500;
+    // Minimum gap between two messages with the same key
+    private static final long KEY_INTERVAL_MS = 1000;
+    // Minimum gap before the exact same message is repeated
+    private static final long REPEAT_INTERVAL_MS = 30000;
+
+    private static final class KeyState {
+        String lastMessage;
+        long lastTime;
+        int suppressed;
+    }
+
+    private static volatile int level = DEFAULT_LEVEL;
+
+    // Guarded by the ModuleLog class lock
+    private static final String[] buffer = new String[BUFFER_SIZE];
+    private static int head;
+    private static int count;
+    private static int dropped;
+    private static boolean flushPending;
+    private static final Map<String, KeyState> keyStates = new HashMap<>();
+
+    private static final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private ModuleLog() {
+    }
+
+    static boolean isLoggable(int messageLevel) {
+        return messageLevel <= level;
+    }
+
+    static void setLevel(int newLevel) {
+        level = newLevel;
+    }
+
+    static void e(String message) {
+        log(ERROR, null, message);
+    }
+
+    static void e(String key, String message) {
+        log(ERROR, key, message);
+    }
+
+    static void w(String key, String message) {
+        log(WARN, key, message);
+    }
+
+    static void i(String message) {
+        log(INFO, null, message);
+    }
+
+    static void i(String key, String message) {
+        log(INFO, key, message);
+    }
+
+    static void d(String key, String message) {
+        log(DEBUG, key, message);
+    }
+
+    static void v(String key, String message) {
+        log(VERBOSE, key, message);
+    }
+
+    /**
+     * Queues a message. A non-null key enables per-key rate limiting and
+     * deduplication; messages without a key are always queued.
+     */
+    static void log(int messageLevel, String key, String message) {
+        if (!isLoggable(messageLevel)) {
+            return;
+        }
+
+        boolean schedule;
+        synchronized (ModuleLog.class) {
+            if (key != null) {
+                long now = System.currentTimeMillis();
+                KeyState state = keyStates.get(key);
+                if (state == null) {
+                    state = new KeyState();
+                    keyStates.put(key, state);
+                } else {
+                    long interval = message.equals(state.lastMessage) ? REPEAT_INTERVAL_MS : KEY_INTERVAL_MS;
+                    if (now - state.lastTime < interval) {
+                        state.suppressed++;
+                        return;
+                    }
+                }
+                state.lastMessage = message;
+                state.lastTime = now;
+                if (state.suppressed > 0) {
+                    message = message + " (" + state.suppressed + " similar suppressed)";
+                    state.suppressed = 0;
+                }
+            }
+
+            if (count == BUFFER_SIZE) {
+                // Drop the oldest entry rather than block the caller
+                head = (head + 1) % BUFFER_SIZE;
+                count--;
+                dropped++;
+            }
+            buffer[(head + count) % BUFFER_SIZE] = PREFIX + message;
+            count++;
+
+            schedule = !flushPending;
+            flushPending = true;
+        }
+
+        if (schedule) {
+            BackgroundThread.getHandler().postDelayed(flushTask, FLUSH_DELAY_MS);
+        }
+    }
+
+    private static void flush() {
+        StringBuilder batch;
+        synchronized (ModuleLog.class) {
+            flushPending = false;
+            if (count == 0) {
+                return;
+            }
+
+            batch = new StringBuilder();
+            if (dropped > 0) {
+                batch.append(PREFIX).append(dropped).append(" log lines dropped\n");
+                dropped = 0;
+            }
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) % BUFFER_SIZE;
+                if (i > 0) {
+                    batch.append('\n');
+                }
+                batch.append(buffer[index]);
+                buffer[index] = null;
+            }
+            head = 0;
+            count = 0;
+        }
+        XposedBridge.log(batch.toString());
+    }
+}
@@ -0,0 +1,133 @@
+package com.hidevoicemsg.xposed;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The navigation views currently being monitored. Keys are weak and compared
+ * by identity (View does not override equals). Values are weak too: each
+ * registration is kept alive only by the attach listener it installs on its
+ * own view, so the registry never holds a view or its window after Google
+ * Voice lets go of it, for example when an activity is recreated.
+ *
+ * A registration is removed when its view detaches, which stops its monitor
+ * and removes its listeners and pending frame callbacks. Methods may be
+ * called from any thread; monitor teardown always runs on the main thread.
+ * The onEmpty callback runs whenever removing registrations leaves none.
+ */
+final class MonitorRegistry {
+
+    private final class Registration implements View.OnAttachStateChangeListener {
+        final View view;
+        final NavigationMonitor monitor;
+
+        Registration(View view, NavigationMonitor monitor) {
+            this.view = view;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            unregister(v);
+        }
+
+        void release() {
+            monitor.stop();
+            view.removeOnAttachStateChangeListener(this);
+        }
+    }
+
+    private final Map<View, WeakReference<Registration>> registrations = new WeakHashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable onEmpty;
+
+    MonitorRegistry(Runnable onEmpty) {
+        this.onEmpty = onEmpty;
+    }
+
+    /**
+     * Registers and starts a monitor for the view. Returns false, leaving the
+     * monitor unstarted, when the view is already monitored.
+     */
+    boolean register(View view, NavigationMonitor monitor) {
+        Registration registration = new Registration(view, monitor);
+        synchronized (registrations) {
+            if (lookup(view) != null) {
+                return false;
+            }
+            registrations.put(view, new WeakReference<>(registration));
+        }
+        view.addOnAttachStateChangeListener(registration);
+        monitor.start();
+        return true;
+    }
+
+    boolean contains(View view) {
+        synchronized (registrations) {
+            return lookup(view) != null;
+        }
+    }
+
+    void unregister(View view) {
+        Registration registration;
+        boolean empty;
+        synchronized (registrations) {
+            registration = lookup(view);
+            registrations.remove(view);
+            empty = registrations.isEmpty();
+        }
+        if (registration != null) {
+            release(registration);
+        }
+        if (empty) {
+            onEmpty.run();
+        }
+    }
+
+    /** Stops every monitor, e.g. once the navigation menu no longer needs watching. */
+    void clear() {
+        List<Registration> removed = new ArrayList<>();
+        synchronized (registrations) {
+            for (WeakReference<Registration> reference : registrations.values()) {
+                Registration registration = reference.get();
+                if (registration != null) {
+                    removed.add(registration);
+                }
+            }
+            registrations.clear();
+        }
+        for (Registration registration : removed) {
+            release(registration);
+        }
+        onEmpty.run();
+    }
+
+    private Registration lookup(View view) {
+        WeakReference<Registration> reference = registrations.get(view);
+        return reference != null ? reference.get() : null;
+    }
+
+    private void release(final Registration registration) {
+        // Frame callbacks and view listeners belong to the UI thread
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            registration.release();
+        } else {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    registration.release();
+                }
+            });
+        }
+    }
+}
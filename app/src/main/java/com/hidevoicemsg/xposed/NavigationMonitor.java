@@ -0,0 +1,278 @@
+package com.hidevoicemsg.xposed;
+
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+import de.robv.android.xposed.XposedHelpers;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Re-runs the navigation hide pass only when the navigation subtree actually
+ * changes: a child is added to any ViewGroup in it (menu updates re-add the
+ * item views, so this also covers menu mutation) or the window lays out.
+ * Bursts of events are coalesced into at most one pass per frame, and nothing
+ * runs while the UI is idle.
+ *
+ * Passes are incremental. Added children and views whose content description
+ * changed are recorded as dirty roots, and a pass only walks those subtrees,
+ * so its cost follows the size of the change rather than of the navigation
+ * view. The first pass, and any pass after the rules change, walks
+ * everything. Hidden views are remembered instead of walked; a layout pass
+ * rechecks them and walks any that Google Voice has shown again.
+ *
+ * All callbacks arrive on the UI thread. The parent lookup used by the
+ * addView hook may come from any thread.
+ */
+final class NavigationMonitor implements Choreographer.FrameCallback, ViewTreeObserver.OnGlobalLayoutListener {
+
+    interface Pass {
+        /**
+         * Hides the message views in the dirty roots, or below the whole
+         * navigation view when dirtyRoots is null. Views found hidden are
+         * added to hiddenViews.
+         */
+        void run(View navigationView, List<View> dirtyRoots, Collection<View> hiddenViews);
+    }
+
+    // Every ViewGroup currently watched by a monitor, so the shared addView
+    // hook can tell in O(1) whether a parent belongs to a navigation view.
+    // Values are weak as well, since a monitor references its navigation view
+    // and would otherwise keep every watched parent reachable
+    private static final Map<View, WeakReference<NavigationMonitor>> monitoredParents =
+        Collections.synchronizedMap(new WeakHashMap<View, WeakReference<NavigationMonitor>>());
+
+    private final View navigationView;
+    private final Pass pass;
+    private boolean scheduled;
+    private boolean stopped;
+
+    // Pass state, only touched on the UI thread
+    private final Set<View> dirtyRoots = newIdentitySet();
+    private final Set<View> hiddenViews = newIdentitySet();
+    private final List<View> roots = new ArrayList<>();
+    private boolean fullPass = true;
+
+    NavigationMonitor(View navigationView, Pass pass) {
+        this.navigationView = navigationView;
+        this.pass = pass;
+    }
+
+    void start() {
+        navigationView.getViewTreeObserver().addOnGlobalLayoutListener(this);
+        if (navigationView instanceof ViewGroup) {
+            watchSubtree((ViewGroup) navigationView);
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            scheduled = false;
+        }
+        ViewTreeObserver observer = navigationView.getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnGlobalLayoutListener(this);
+        }
+        if (navigationView instanceof ViewGroup) {
+            unwatchSubtree((ViewGroup) navigationView);
+        }
+    }
+
+    static NavigationMonitor forParent(Object parent) {
+        WeakReference<NavigationMonitor> reference = monitoredParents.get(parent);
+        return reference != null ? reference.get() : null;
+    }
+
+    /** Called by the setContentDescription hook; marks the view dirty if it is monitored. */
+    static void onContentDescriptionChanged(View view) {
+        NavigationMonitor monitor = forParent(view.getParent());
+        if (monitor == null) {
+            // A watched ViewGroup changing its own description
+            monitor = forParent(view);
+        }
+        if (monitor != null) {
+            monitor.markDirty(view);
+        }
+    }
+
+    /** Records a changed subtree for the next pass. */
+    void markDirty(View view) {
+        if (!stopped) {
+            dirtyRoots.add(view);
+            schedule();
+        }
+    }
+
+    /** Runs a pass right away, without waiting for the next frame. */
+    void runNow() {
+        if (!stopped) {
+            runPass();
+        }
+    }
+
+    /** Requests a pass on the next frame; repeated requests within a frame are merged. */
+    void schedule() {
+        if (!scheduled && !stopped) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        if (stopped) {
+            return;
+        }
+        runPass();
+        // The pass runs from a frame callback, ahead of this frame's traversal
+        HideScheduler.flush();
+    }
+
+    private void runPass() {
+        List<View> pending = null;
+        if (fullPass) {
+            hiddenViews.clear();
+        } else {
+            // Hidden views that are visible again need another look
+            for (Iterator<View> it = hiddenViews.iterator(); it.hasNext(); ) {
+                View view = it.next();
+                if (view.getParent() == null) {
+                    it.remove();
+                } else if (!AndroidViewTree.INSTANCE.isHidden(view)) {
+                    it.remove();
+                    dirtyRoots.add(view);
+                }
+            }
+            roots.clear();
+            for (View view : dirtyRoots) {
+                if (isDirtyRoot(view)) {
+                    roots.add(view);
+                }
+            }
+            pending = roots;
+        }
+        fullPass = false;
+        dirtyRoots.clear();
+
+        try {
+            pass.run(navigationView, pending, hiddenViews);
+        } catch (Throwable t) {
+            ModuleLog.e("nav.pass.error", "Error in navigation pass: " + t.getMessage());
+        }
+        roots.clear();
+    }
+
+    /**
+     * True if the view is still inside the navigation view and no dirty
+     * ancestor already covers it.
+     */
+    private boolean isDirtyRoot(View view) {
+        if (view == navigationView) {
+            return true;
+        }
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (dirtyRoots.contains(parent)) {
+                return false;
+            }
+            if (parent == navigationView) {
+                return true;
+            }
+            parent = parent.getParent();
+        }
+        return false;
+    }
+
+    private static Set<View> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        schedule();
+    }
+
+    private void watchSubtree(ViewGroup group) {
+        monitoredParents.put(group, new WeakReference<>(this));
+        Object current = XposedHelpers.getObjectField(group, "mOnHierarchyChangeListener");
+        if (!(current instanceof HierarchyListener)) {
+            group.setOnHierarchyChangeListener(
+                new HierarchyListener((ViewGroup.OnHierarchyChangeListener) current));
+        }
+        for (int i = 0; i < group.getChildCount(); i++) {
+            View child = group.getChildAt(i);
+            if (child instanceof ViewGroup) {
+                watchSubtree((ViewGroup) child);
+            }
+        }
+    }
+
+    private void unwatchSubtree(ViewGroup group) {
+        synchronized (monitoredParents) {
+            if (forParent(group) == this) {
+                monitoredParents.remove(group);
+            }
+        }
+        Object current = XposedHelpers.getObjectField(group, "mOnHierarchyChangeListener");
+        if (current instanceof HierarchyListener && ((HierarchyListener) current).owner() == this) {
+            group.setOnHierarchyChangeListener(((HierarchyListener) current).previous);
+        }
+        for (int i = 0; i < group.getChildCount(); i++) {
+            View child = group.getChildAt(i);
+            if (child instanceof ViewGroup) {
+                unwatchSubtree((ViewGroup) child);
+            }
+        }
+    }
+
+    /** Wraps whatever listener Google Voice installed so it keeps receiving events. */
+    private final class HierarchyListener implements ViewGroup.OnHierarchyChangeListener {
+
+        final ViewGroup.OnHierarchyChangeListener previous;
+
+        HierarchyListener(ViewGroup.OnHierarchyChangeListener previous) {
+            this.previous = previous;
+        }
+
+        NavigationMonitor owner() {
+            return NavigationMonitor.this;
+        }
+
+        @Override
+        public void onChildViewAdded(View parent, View child) {
+            if (previous != null) {
+                previous.onChildViewAdded(parent, child);
+            }
+            if (stopped) {
+                return;
+            }
+            if (child instanceof ViewGroup) {
+                watchSubtree((ViewGroup) child);
+            }
+            markDirty(child);
+        }
+
+        @Override
+        public void onChildViewRemoved(View parent, View child) {
+            if (previous != null) {
+                previous.onChildViewRemoved(parent, child);
+            }
+            if (child instanceof ViewGroup) {
+                unwatchSubtree((ViewGroup) child);
+            }
+        }
+    }
+}
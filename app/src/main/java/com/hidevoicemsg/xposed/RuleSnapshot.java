@@ -0,0 +1,175 @@
+package com.hidevoicemsg.xposed;
+
+import android.content.SharedPreferences;
+import com.hidevoicemsg.xposed.core.KeywordMatcher;
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+import com.hidevoicemsg.xposed.core.ResourceVerdictTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One compiled rule set: keywords and exclusions, class name patterns, known
+ * resource and channel IDs, per-hook switches, the log level and the
+ * hierarchy recorder switch. A snapshot is fully built before it is
+ * published and never changes afterwards, so hooks can read it without
+ * locking. The only mutable part is its own resource verdict table, which
+ * memoizes lookups under these rules.
+ */
+final class RuleSnapshot {
+
+    // Preference keys; lists are comma or newline separated
+    static final String KEY_MESSAGE_KEYWORDS = "message_keywords";
+    static final String KEY_EXCLUDED_KEYWORDS = "excluded_keywords";
+    static final String KEY_NAVIGATION_CLASSES = "navigation_class_patterns";
+    static final String KEY_BANNER_CLASSES = "banner_class_patterns";
+    static final String KEY_RESOURCE_IDS = "message_resource_ids";
+    static final String KEY_CHANNEL_IDS = "message_channel_ids";
+    static final String KEY_HOOK_VIEWS = "hook_views";
+    static final String KEY_HOOK_ADD_VIEW = "hook_add_view";
+    static final String KEY_HOOK_MENU = "hook_menu";
+    static final String KEY_HOOK_TOAST = "hook_toast";
+    static final String KEY_HOOK_NOTIFICATIONS = "hook_notifications";
+    static final String KEY_HOOK_RECYCLER_VIEW = "hook_recycler_view";
+    static final String KEY_DISABLE_CHANNELS = "disable_message_channels";
+    static final String KEY_LOG_LEVEL = "log_level";
+    static final String KEY_RECORD_HIERARCHIES = "record_hierarchies";
+
+    static final String[] NAVIGATION_CLASS_PATTERNS = {
+        "BottomNavigation", "NavigationBar", "NavigationView"
+    };
+    static final String[] BANNER_CLASS_PATTERNS = {
+        "Snackbar", "Banner"
+    };
+
+    final MessageClassifier classifier;
+    final KeywordMatcher rules;
+    // The source lists, kept for hierarchy snapshots
+    final String[] messageKeywords;
+    final String[] excludedKeywords;
+    final int[] resourceIds;
+    final ResourceVerdictTable resourceVerdicts;
+    final Set<String> channelIds;
+
+    final boolean viewHooksEnabled;
+    final boolean addViewEnabled;
+    final boolean menuEnabled;
+    final boolean toastEnabled;
+    final boolean notificationsEnabled;
+    final boolean recyclerViewEnabled;
+    // Creating a channel with IMPORTANCE_NONE is kept by the system and cannot be undone by the module
+    final boolean disableChannels;
+    final int logLevel;
+    final boolean recordHierarchies;
+
+    // Identifies the rule text, so caches written under other rules can be discarded
+    final int fingerprint;
+
+    private final String[] navigationClassPatterns;
+    private final String[] bannerClassPatterns;
+
+    private RuleSnapshot(String[] messageKeywords, String[] excludedKeywords,
+                         String[] navigationClassPatterns, String[] bannerClassPatterns,
+                         int[] resourceIds, String[] channelIds,
+                         boolean viewHooksEnabled, boolean addViewEnabled, boolean menuEnabled,
+                         boolean toastEnabled, boolean notificationsEnabled, boolean recyclerViewEnabled,
+                         boolean disableChannels, int logLevel, boolean recordHierarchies, MessageClassifier.Listener listener) {
+        this.rules = KeywordMatcher.compile(messageKeywords, excludedKeywords);
+        this.messageKeywords = messageKeywords;
+        this.excludedKeywords = excludedKeywords;
+        this.resourceIds = resourceIds;
+        this.resourceVerdicts = new ResourceVerdictTable();
+        for (int resourceId : resourceIds) {
+            resourceVerdicts.put(resourceId, ResourceVerdictTable.MESSAGE);
+        }
+        this.classifier = new MessageClassifier(rules, resourceVerdicts, listener);
+        this.channelIds = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(channelIds)));
+        this.navigationClassPatterns = navigationClassPatterns;
+        this.bannerClassPatterns = bannerClassPatterns;
+        this.viewHooksEnabled = viewHooksEnabled;
+        this.addViewEnabled = addViewEnabled;
+        this.menuEnabled = menuEnabled;
+        this.toastEnabled = toastEnabled;
+        this.notificationsEnabled = notificationsEnabled;
+        this.recyclerViewEnabled = recyclerViewEnabled;
+        this.disableChannels = disableChannels;
+        this.logLevel = logLevel;
+        this.recordHierarchies = recordHierarchies;
+
+        int hash = Arrays.hashCode(messageKeywords);
+        hash = 31 * hash + Arrays.hashCode(excludedKeywords);
+        hash = 31 * hash + Arrays.hashCode(navigationClassPatterns);
+        hash = 31 * hash + Arrays.hashCode(bannerClassPatterns);
+        this.fingerprint = hash;
+    }
+
+    /** The built-in rules, used when the module has no preferences. */
+    static RuleSnapshot createDefault(MessageClassifier.Listener listener) {
+        return new RuleSnapshot(MessageClassifier.MESSAGE_KEYWORDS, MessageClassifier.EXCLUDED_KEYWORDS,
+            NAVIGATION_CLASS_PATTERNS, BANNER_CLASS_PATTERNS, new int[0], new String[0],
+            true, true, true, true, true, false, false, ModuleLog.DEFAULT_LEVEL, false, listener);
+    }
+
+    /** Compiles a snapshot from the module preferences; missing keys fall back to the defaults. */
+    static RuleSnapshot fromPreferences(SharedPreferences prefs, MessageClassifier.Listener listener) {
+        String[] resourceIdTexts = readList(prefs, KEY_RESOURCE_IDS, new String[0]);
+        int[] resourceIds = new int[resourceIdTexts.length];
+        for (int i = 0; i < resourceIdTexts.length; i++) {
+            // Long.decode accepts 0x7f... IDs that overflow Integer.decode's sign check
+            resourceIds[i] = (int) (long) Long.decode(resourceIdTexts[i]);
+        }
+
+        return new RuleSnapshot(
+            readList(prefs, KEY_MESSAGE_KEYWORDS, MessageClassifier.MESSAGE_KEYWORDS),
+            readList(prefs, KEY_EXCLUDED_KEYWORDS, MessageClassifier.EXCLUDED_KEYWORDS),
+            readList(prefs, KEY_NAVIGATION_CLASSES, NAVIGATION_CLASS_PATTERNS),
+            readList(prefs, KEY_BANNER_CLASSES, BANNER_CLASS_PATTERNS),
+            resourceIds,
+            readList(prefs, KEY_CHANNEL_IDS, new String[0]),
+            prefs.getBoolean(KEY_HOOK_VIEWS, true),
+            prefs.getBoolean(KEY_HOOK_ADD_VIEW, true),
+            prefs.getBoolean(KEY_HOOK_MENU, true),
+            prefs.getBoolean(KEY_HOOK_TOAST, true),
+            prefs.getBoolean(KEY_HOOK_NOTIFICATIONS, true),
+            prefs.getBoolean(KEY_HOOK_RECYCLER_VIEW, false),
+            prefs.getBoolean(KEY_DISABLE_CHANNELS, false),
+            prefs.getInt(KEY_LOG_LEVEL, ModuleLog.DEFAULT_LEVEL),
+            prefs.getBoolean(KEY_RECORD_HIERARCHIES, false),
+            listener);
+    }
+
+    boolean isNavigationClass(String className) {
+        return containsAny(className, navigationClassPatterns);
+    }
+
+    boolean isBannerClass(String className) {
+        return containsAny(className, bannerClassPatterns);
+    }
+
+    private static boolean containsAny(String className, String[] patterns) {
+        for (String pattern : patterns) {
+            if (className.contains(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] readList(SharedPreferences prefs, String key, String[] defaults) {
+        String value = prefs.getString(key, null);
+        if (value == null) {
+            return defaults;
+        }
+        List<String> items = new ArrayList<>();
+        for (String item : value.split("[,\n]")) {
+            item = item.trim();
+            if (!item.isEmpty()) {
+                items.add(item);
+            }
+        }
+        return items.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,106 @@
+package com.hidevoicemsg.xposed;
+
+import android.content.SharedPreferences;
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+import de.robv.android.xposed.XSharedPreferences;
+
+/**
+ * Publishes the current RuleSnapshot through a single volatile reference.
+ * Rules are read from the module's "rules" preferences and recompiled when
+ * the file changes, without restarting Google Voice. A new snapshot is built
+ * completely on the background thread and then swapped in, so hooks see
+ * either the old rules or the new ones, never a mix.
+ *
+ * Preferences are delivered through LSPosed's change listener when it is
+ * available; otherwise the file is polled for changes.
+ */
+final class RuleStore {
+
+    private static final String MODULE_PACKAGE = "com.hidevoicemsg.xposed";
+    static final String PREFS_NAME = "rules";
+    private static final long POLL_INTERVAL_MS = 10000;
+
+    private static volatile RuleSnapshot current;
+
+    private static XSharedPreferences prefs;
+    private static MessageClassifier.Listener classifierListener;
+
+    // SharedPreferences only keeps weak references to its listeners
+    private static final SharedPreferences.OnSharedPreferenceChangeListener changeListener =
+        new SharedPreferences.OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                BackgroundThread.getHandler().post(reloadTask);
+            }
+        };
+
+    private static final Runnable reloadTask = new Runnable() {
+        @Override
+        public void run() {
+            reload();
+        }
+    };
+
+    private static final Runnable pollTask = new Runnable() {
+        @Override
+        public void run() {
+            if (prefs.hasFileChanged()) {
+                reload();
+            }
+            BackgroundThread.getHandler().postDelayed(this, POLL_INTERVAL_MS);
+        }
+    };
+
+    private RuleStore() {
+    }
+
+    /** The rules in effect; never null once load() has run. */
+    static RuleSnapshot get() {
+        return current;
+    }
+
+    /** Compiles the initial snapshot synchronously, then starts watching for changes. */
+    static RuleSnapshot load(MessageClassifier.Listener listener) {
+        classifierListener = listener;
+        prefs = new XSharedPreferences(MODULE_PACKAGE, PREFS_NAME);
+
+        current = compile();
+        ModuleLog.setLevel(current.logLevel);
+
+        try {
+            prefs.registerOnSharedPreferenceChangeListener(changeListener);
+        } catch (UnsupportedOperationException e) {
+            // Legacy XSharedPreferences has no listeners; poll the file instead
+            BackgroundThread.getHandler().postDelayed(pollTask, POLL_INTERVAL_MS);
+        }
+        return current;
+    }
+
+    private static void reload() {
+        prefs.reload();
+        RuleSnapshot previous = current;
+        RuleSnapshot next = compile();
+        if (next == previous) {
+            return;
+        }
+        current = next;
+        ModuleLog.setLevel(next.logLevel);
+        // Caches compare the rules they were filled under, so they invalidate themselves
+        ModuleLog.i("Rules reloaded");
+    }
+
+    private static RuleSnapshot compile() {
+        try {
+            if (prefs.getFile().canRead()) {
+                return RuleSnapshot.fromPreferences(prefs, classifierListener);
+            }
+        } catch (Throwable t) {
+            // Keep running on the last good rules rather than a half-parsed set
+            ModuleLog.e("Error reading rules, keeping previous: " + t.getMessage());
+            if (current != null) {
+                return current;
+            }
+        }
+        return RuleSnapshot.createDefault(classifierListener);
+    }
+}
@@ -0,0 +1,159 @@
+package com.hidevoicemsg.xposed;
+
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.preference.CheckBoxPreference;
+import android.preference.EditTextPreference;
+import android.preference.ListPreference;
+import android.preference.Preference;
+import android.preference.PreferenceActivity;
+import android.preference.PreferenceCategory;
+import android.preference.PreferenceManager;
+import android.preference.PreferenceScreen;
+import android.widget.Toast;
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+
+/**
+ * Minimal editor for the "rules" preferences that RuleStore reads inside
+ * Google Voice. Opened from LSPosed's module list or the launcher.
+ *
+ * The file is written world-readable, which LSPosed redirects to its shared
+ * module preferences (xposedsharedprefs). List fields left empty are removed
+ * so the built-in defaults apply again. The screen is built in code so the
+ * keys stay in RuleSnapshot only.
+ */
+@SuppressWarnings("deprecation")
+public class RulesActivity extends PreferenceActivity {
+
+    private static final String[] LOG_LEVELS = {"0", "1", "2", "3", "4"};
+    private static final String[] LOG_LEVEL_NAMES = {"Errors", "Warnings", "Info", "Debug", "Verbose"};
+
+    private SharedPreferences prefs;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        PreferenceManager manager = getPreferenceManager();
+        manager.setSharedPreferencesName(RuleStore.PREFS_NAME);
+        try {
+            manager.setSharedPreferencesMode(MODE_WORLD_READABLE);
+            prefs = manager.getSharedPreferences();
+        } catch (SecurityException e) {
+            // Android refuses world-readable files unless LSPosed has the module enabled
+            Toast.makeText(this, "Enable the module in LSPosed so Google Voice can read these rules",
+                Toast.LENGTH_LONG).show();
+            manager.setSharedPreferencesMode(MODE_PRIVATE);
+            prefs = manager.getSharedPreferences();
+        }
+
+        PreferenceScreen screen = manager.createPreferenceScreen(this);
+        setPreferenceScreen(screen);
+
+        PreferenceCategory keywords = category(screen, "Keywords");
+        addList(keywords, RuleSnapshot.KEY_MESSAGE_KEYWORDS, "Message keywords", MessageClassifier.MESSAGE_KEYWORDS);
+        addList(keywords, RuleSnapshot.KEY_EXCLUDED_KEYWORDS, "Excluded keywords",
+            MessageClassifier.EXCLUDED_KEYWORDS);
+        addList(keywords, RuleSnapshot.KEY_NAVIGATION_CLASSES, "Navigation class patterns",
+            RuleSnapshot.NAVIGATION_CLASS_PATTERNS);
+        addList(keywords, RuleSnapshot.KEY_BANNER_CLASSES, "Banner class patterns",
+            RuleSnapshot.BANNER_CLASS_PATTERNS);
+        addList(keywords, RuleSnapshot.KEY_RESOURCE_IDS, "Message resource IDs", new String[0]);
+        addList(keywords, RuleSnapshot.KEY_CHANNEL_IDS, "Message channel IDs", new String[0]);
+
+        PreferenceCategory hooks = category(screen, "Hooks");
+        addSwitch(hooks, RuleSnapshot.KEY_HOOK_VIEWS, "Hide message views", true);
+        addSwitch(hooks, RuleSnapshot.KEY_HOOK_ADD_VIEW, "Block added message views", true);
+        addSwitch(hooks, RuleSnapshot.KEY_HOOK_MENU, "Filter menus", true);
+        addSwitch(hooks, RuleSnapshot.KEY_HOOK_TOAST, "Block message toasts", true);
+        addSwitch(hooks, RuleSnapshot.KEY_HOOK_NOTIFICATIONS, "Block message notifications", true);
+        addSwitch(hooks, RuleSnapshot.KEY_HOOK_RECYCLER_VIEW, "Collapse message list rows", false);
+        CheckBoxPreference disableChannels = addSwitch(hooks, RuleSnapshot.KEY_DISABLE_CHANNELS,
+            "Create message channels disabled", false);
+        disableChannels.setSummary("Android keeps these channels off, even after the module is removed");
+
+        PreferenceCategory debug = category(screen, "Debugging");
+        addLogLevel(debug);
+        addSwitch(debug, RuleSnapshot.KEY_RECORD_HIERARCHIES, "Record view hierarchies", false);
+    }
+
+    private PreferenceCategory category(PreferenceScreen screen, String title) {
+        PreferenceCategory category = new PreferenceCategory(this);
+        category.setTitle(title);
+        screen.addPreference(category);
+        return category;
+    }
+
+    private void addList(PreferenceCategory category, final String key, String title, String[] defaults) {
+        final String defaultSummary = defaults.length == 0
+            ? "Comma separated; empty by default" : "Default: " + join(defaults);
+        final EditTextPreference preference = new EditTextPreference(this);
+        preference.setKey(key);
+        preference.setTitle(title);
+        preference.setDialogMessage("Comma separated. Leave empty for the default.");
+        category.addPreference(preference);
+        preference.setSummary(prefs.contains(key) ? preference.getText() : defaultSummary);
+
+        preference.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+            @Override
+            public boolean onPreferenceChange(Preference changed, Object newValue) {
+                String value = ((String) newValue).trim();
+                if (value.isEmpty()) {
+                    // An empty list would mean "nothing", not "the defaults"
+                    prefs.edit().remove(key).apply();
+                    preference.setText(null);
+                    preference.setSummary(defaultSummary);
+                    return false;
+                }
+                preference.setSummary(value);
+                return true;
+            }
+        });
+    }
+
+    private CheckBoxPreference addSwitch(PreferenceCategory category, String key, String title,
+                                         boolean defaultValue) {
+        CheckBoxPreference preference = new CheckBoxPreference(this);
+        preference.setKey(key);
+        preference.setTitle(title);
+        preference.setDefaultValue(defaultValue);
+        category.addPreference(preference);
+        return preference;
+    }
+
+    private void addLogLevel(PreferenceCategory category) {
+        // RuleSnapshot reads an int, while ListPreference would persist a string
+        final ListPreference preference = new ListPreference(this);
+        preference.setPersistent(false);
+        preference.setTitle("Log level");
+        preference.setEntries(LOG_LEVEL_NAMES);
+        preference.setEntryValues(LOG_LEVELS);
+        category.addPreference(preference);
+
+        int level = Math.max(0, Math.min(LOG_LEVELS.length - 1,
+            prefs.getInt(RuleSnapshot.KEY_LOG_LEVEL, ModuleLog.DEFAULT_LEVEL)));
+        preference.setValueIndex(level);
+        preference.setSummary(LOG_LEVEL_NAMES[level]);
+
+        preference.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+            @Override
+            public boolean onPreferenceChange(Preference changed, Object newValue) {
+                int level = Integer.parseInt((String) newValue);
+                prefs.edit().putInt(RuleSnapshot.KEY_LOG_LEVEL, level).apply();
+                preference.setSummary(LOG_LEVEL_NAMES[level]);
+                return true;
+            }
+        });
+    }
+
+    private static String join(String[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,203 @@
+package com.hidevoicemsg.xposed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What discovery found in one Google Voice build: navigation classes, Messages
+ * menu item IDs, message view resource IDs and message notification channels.
+ * It is persisted to a small versioned binary file keyed by the app's
+ * versionCode and the rules fingerprint, so the next cold start can go
+ * straight to targeted blocking.
+ *
+ * Sets are synchronized; saving is debounced onto the background thread.
+ */
+final class TargetCache {
+
+    private static final int MAGIC = 0x48564d54; // "HVMT"
+    private static final int FORMAT_VERSION = 2;
+    private static final long SAVE_DELAY_MS = 2000;
+
+    private final File file;
+    private final long versionCode;
+    private final int rulesFingerprint;
+
+    final Set<String> navigationClasses = Collections.synchronizedSet(new LinkedHashSet<String>());
+    final Set<Integer> menuItemIds = Collections.synchronizedSet(new LinkedHashSet<Integer>());
+    final Set<Integer> messageResourceIds = Collections.synchronizedSet(new LinkedHashSet<Integer>());
+    final Set<String> channelIds = Collections.synchronizedSet(new LinkedHashSet<String>());
+
+    private boolean savePending;
+
+    private final Runnable saveTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (TargetCache.this) {
+                savePending = false;
+            }
+            save();
+        }
+    };
+
+    private TargetCache(File file, long versionCode, int rulesFingerprint) {
+        this.file = file;
+        this.versionCode = versionCode;
+        this.rulesFingerprint = rulesFingerprint;
+    }
+
+    /**
+     * Reads the cache for the given app version and rules. Returns an empty
+     * cache when the file is missing, unreadable or written for another
+     * version or rule set.
+     */
+    static TargetCache load(File file, long versionCode, int rulesFingerprint) {
+        if (file.isFile()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION && in.readLong() == versionCode
+                        && in.readInt() == rulesFingerprint) {
+                    TargetCache cache = new TargetCache(file, versionCode, rulesFingerprint);
+                    readStrings(in, cache.navigationClasses);
+                    readInts(in, cache.menuItemIds);
+                    readInts(in, cache.messageResourceIds);
+                    readStrings(in, cache.channelIds);
+                    return cache;
+                }
+            } catch (IOException e) {
+                ModuleLog.e("Error reading target cache: " + e.getMessage());
+            } finally {
+                closeQuietly(in);
+            }
+        }
+        return new TargetCache(file, versionCode, rulesFingerprint);
+    }
+
+    /** A fresh, empty cache for the same file and version, used when a cached target no longer resolves. */
+    TargetCache reset() {
+        TargetCache cache = new TargetCache(file, versionCode, rulesFingerprint);
+        cache.scheduleSave();
+        return cache;
+    }
+
+    void addNavigationClass(String className) {
+        if (navigationClasses.add(className)) {
+            scheduleSave();
+        }
+    }
+
+    void addMenuItemId(int itemId) {
+        if (menuItemIds.add(itemId)) {
+            scheduleSave();
+        }
+    }
+
+    void addMessageResourceId(int resourceId) {
+        if (messageResourceIds.add(resourceId)) {
+            scheduleSave();
+        }
+    }
+
+    void addChannelId(String channelId) {
+        if (channelIds.add(channelId)) {
+            scheduleSave();
+        }
+    }
+
+    private void scheduleSave() {
+        synchronized (this) {
+            if (savePending) {
+                return;
+            }
+            savePending = true;
+        }
+        BackgroundThread.getHandler().postDelayed(saveTask, SAVE_DELAY_MS);
+    }
+
+    private void save() {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            return;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(versionCode);
+            out.writeInt(rulesFingerprint);
+            writeStrings(out, navigationClasses);
+            writeInts(out, menuItemIds);
+            writeInts(out, messageResourceIds);
+            writeStrings(out, channelIds);
+            out.close();
+            out = null;
+
+            if (!temp.renameTo(file)) {
+                ModuleLog.e("Could not replace target cache");
+            }
+        } catch (IOException e) {
+            ModuleLog.e("Error writing target cache: " + e.getMessage());
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Set<String> values) throws IOException {
+        List<String> copy;
+        synchronized (values) {
+            copy = new ArrayList<>(values);
+        }
+        out.writeShort(copy.size());
+        for (String value : copy) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, Set<Integer> values) throws IOException {
+        List<Integer> copy;
+        synchronized (values) {
+            copy = new ArrayList<>(values);
+        }
+        out.writeShort(copy.size());
+        for (int value : copy) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void readStrings(DataInputStream in, Set<String> values) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+    }
+
+    private static void readInts(DataInputStream in, Set<Integer> values) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            values.add(in.readInt());
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.hidevoicemsg.xposed;
+
+import android.view.View;
+import com.hidevoicemsg.xposed.core.KeywordMatcher;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers whether a view should be hidden, keyed weakly by view identity.
+ * A verdict is recomputed only when the view's content description or the
+ * rules change, so the draw/measure hooks do a single lookup and no
+ * allocation per frame. Views of classes the ClassFlagsCache has marked
+ * irrelevant are skipped before any of that.
+ *
+ * Views are only touched on the UI thread, so no synchronization is needed.
+ */
+final class ViewVerdictCache {
+
+    private static final class Entry {
+        CharSequence description;
+        KeywordMatcher rules;
+        boolean hide;
+    }
+
+    private final ClassFlagsCache classFlags;
+    // View does not override equals/hashCode, so this is an identity map
+    private final Map<View, Entry> entries = new WeakHashMap<>();
+
+    ViewVerdictCache(ClassFlagsCache classFlags) {
+        this.classFlags = classFlags;
+    }
+
+    boolean shouldHide(View view, RuleSnapshot snapshot) {
+        ClassFlagsCache.ClassInfo info = classFlags.get(view.getClass(), snapshot);
+        if (info.isIrrelevant()) {
+            HookStats.classSkips.increment();
+            return false;
+        }
+
+        KeywordMatcher rules = snapshot.rules;
+        CharSequence desc = view.getContentDescription();
+        if (desc == null) {
+            // Most views have no description; nothing to look up
+            return false;
+        }
+
+        Entry entry = entries.get(view);
+        if (entry != null && entry.description == desc && entry.rules == rules) {
+            HookStats.cacheHits.increment();
+            return entry.hide;
+        }
+
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(view, entry);
+        }
+        HookStats.viewsClassified.increment();
+        entry.description = desc;
+        entry.rules = rules;
+        entry.hide = rules.matches(desc);
+        info.sample(entry.hide);
+        return entry.hide;
+    }
+}
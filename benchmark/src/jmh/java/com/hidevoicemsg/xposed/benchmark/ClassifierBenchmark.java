@@ -0,0 +1,81 @@
+package com.hidevoicemsg.xposed.benchmark;
+
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+import com.hidevoicemsg.xposed.core.ResourceVerdictTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-call cost of the text, notification and single-view verdicts. Each
+ * invocation runs over the whole corpus, so ns/op is per string or view.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClassifierBenchmark {
+
+    private static final int TEXT_SAMPLE = 64;
+    private static final int NOTIFICATION_SAMPLE = 16;
+    private static final int VIEW_SAMPLE = 1024;
+
+    private MessageClassifier classifier;
+    private SyntheticViewTree tree;
+    private String[] texts;
+    private SyntheticView[] views;
+
+    @Setup
+    public void setUp() {
+        classifier = MessageClassifier.createDefault(new ResourceVerdictTable(), null);
+        tree = new SyntheticViewTree(SyntheticTrees.RESOURCE_NAMES);
+        // Cycle the corpus to fixed sample sizes so ns/op is per call
+        texts = new String[TEXT_SAMPLE + 2 * NOTIFICATION_SAMPLE];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = SyntheticTrees.DESCRIPTIONS[i % SyntheticTrees.DESCRIPTIONS.length];
+        }
+
+        SyntheticView[] all = SyntheticTrees.flatten(SyntheticTrees.build(VIEW_SAMPLE, 42));
+        views = new SyntheticView[VIEW_SAMPLE];
+        System.arraycopy(all, 0, views, 0, Math.min(all.length, VIEW_SAMPLE));
+        for (int i = all.length; i < VIEW_SAMPLE; i++) {
+            views[i] = all[i % all.length];
+        }
+
+        // Steady state: resource names have already been resolved once
+        for (SyntheticView view : views) {
+            classifier.scanView(view, tree);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_SAMPLE)
+    public void messageText(Blackhole blackhole) {
+        for (int i = 0; i < TEXT_SAMPLE; i++) {
+            blackhole.consume(classifier.isMessageText(texts[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NOTIFICATION_SAMPLE)
+    public void notification(Blackhole blackhole) {
+        for (int i = 0; i < NOTIFICATION_SAMPLE; i++) {
+            blackhole.consume(classifier.isMessageNotification(
+                texts[i], texts[i + NOTIFICATION_SAMPLE], texts[i + 2 * NOTIFICATION_SAMPLE], "calls_channel"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VIEW_SAMPLE)
+    public void viewVerdict(Blackhole blackhole) {
+        for (SyntheticView view : views) {
+            blackhole.consume(classifier.scanView(view, tree));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.hidevoicemsg.xposed.benchmark;
+
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+import com.hidevoicemsg.xposed.core.ResourceVerdictTable;
+import com.hidevoicemsg.xposed.core.SubtreeScanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of one full hide walk (hideMessageChildren) over a Google Voice shaped
+ * tree, i.e. what a navigation pass pays per frame in the worst case, and of
+ * the bounded subtree text scan the addView hook runs on inflated layouts:
+ * over a whole list without exclusions, so every node is read, and over a
+ * single list row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HideWalkBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int nodes;
+
+    private MessageClassifier classifier;
+    private SyntheticViewTree tree;
+    private SyntheticView root;
+    private SyntheticView list;
+    private SyntheticView row;
+    private SubtreeScanner<SyntheticView> scanner;
+
+    @Setup
+    public void setUp() {
+        classifier = MessageClassifier.createDefault(new ResourceVerdictTable(), null);
+        tree = new SyntheticViewTree(SyntheticTrees.RESOURCE_NAMES);
+        root = SyntheticTrees.build(nodes, 42);
+        list = SyntheticTrees.buildUnexcludedList(nodes, 42, classifier.getRules());
+        row = SyntheticTrees.find(root, "history_list").children[0];
+        scanner = new SubtreeScanner<>(classifier.getRules(), tree, SubtreeScanner.DEFAULT_MAX_DEPTH, nodes);
+    }
+
+    @Benchmark
+    public int hideWalk() {
+        return classifier.hideMessageChildren(root, tree, null);
+    }
+
+    @Benchmark
+    public int subtreeScan() {
+        return scanner.scan(list);
+    }
+
+    @Benchmark
+    public int rowScan() {
+        return scanner.scan(row);
+    }
+}
@@ -0,0 +1,188 @@
+package com.hidevoicemsg.xposed.benchmark;
+
+import com.hidevoicemsg.xposed.core.KeywordMatcher;
+import com.hidevoicemsg.xposed.core.ViewTree;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic, Google Voice shaped view trees and content: a toolbar, a
+ * bottom navigation bar and a call/message history list whose rows hold an
+ * avatar, name, snippet and timestamp, with descriptions in several languages.
+ */
+final class SyntheticTrees {
+
+    // Real-world content descriptions and row texts, English and localized
+    static final String[] DESCRIPTIONS = {
+        "Calls", "Messages", "Voicemail", "Contacts",
+        "Missed call from +1 555-0134", "Text message from Alice: running late, start without me",
+        "Play voicemail from Bob, 0:42", "Conversation with Mom", "Open navigation drawer",
+        "Search contacts and places", "Account and settings", "New message", "Make a call",
+        "Llamadas", "Mensajes", "Buzón de voz", "Llamada perdida de Carlos",
+        "Anrufe", "Nachrichten", "Mailbox", "Verpasster Anruf von Jonas",
+        "Appels", "Messages vocaux", "Appel manqué de Léa",
+        "通话", "信息", "语音信箱", "未接来电：王伟",
+        "通話", "メッセージ", "ボイスメール", "山田さんからの不在着信",
+        "कॉल", "संदेश", "वॉइसमेल", "राहुल से मिस्ड कॉल",
+        "Звонки", "Сообщения", "Голосовая почта", "Пропущенный вызов от Ивана",
+        "SMS from 40404: Your verification code is 123456", "MMS: Photo"
+    };
+
+    static final String[] RESOURCE_NAMES = {
+        "toolbar", "search_bar", "account_avatar", "bottom_navigation", "nav_calls", "nav_messages",
+        "nav_voicemail", "nav_contacts", "history_list", "call_list_item", "message_list_item",
+        "voicemail_list_item", "conversation_list", "contact_avatar", "contact_name", "snippet",
+        "timestamp", "call_type_icon", "voicemail_transcript", "fab", "dial_pad_button",
+        "text_input", "empty_state", "banner_container", "snackbar_text"
+    };
+
+    static final String[] NAMES = {
+        "Alice", "Bob", "Mom", "+1 555-0134", "Carlos Pérez", "Jonas Müller", "Léa", "王伟", "山田太郎", "राहुल", "Иван"
+    };
+
+    static final String[] TIMESTAMPS = {
+        "3:42 PM", "Yesterday", "Mon", "12/24", "15:42", "昨日", "вчера"
+    };
+
+    private SyntheticTrees() {
+    }
+
+    /** Builds a tree of roughly nodeCount nodes with the fixed seed. */
+    static SyntheticView build(int nodeCount, long seed) {
+        Random random = new Random(seed);
+        int[] remaining = {nodeCount};
+
+        SyntheticView root = new SyntheticView("com.android.internal.policy.DecorView");
+        SyntheticView content = new SyntheticView("android.widget.FrameLayout");
+        SyntheticView coordinator = new SyntheticView("androidx.coordinatorlayout.widget.CoordinatorLayout");
+        root.children = new SyntheticView[] {content};
+        content.children = new SyntheticView[] {coordinator};
+        remaining[0] -= 3;
+
+        SyntheticView toolbar = node("androidx.appcompat.widget.Toolbar", null, "toolbar");
+        toolbar.children = new SyntheticView[] {
+            node("android.widget.ImageButton", "Open navigation drawer", null),
+            node("android.widget.TextView", "Search contacts and places", "search_bar"),
+            node("android.widget.ImageView", "Account and settings", "account_avatar")
+        };
+
+        SyntheticView navigation = node("com.google.android.material.bottomnavigation.BottomNavigationView",
+            null, "bottom_navigation");
+        SyntheticView menuView = node("com.google.android.material.bottomnavigation.BottomNavigationMenuView", null, null);
+        navigation.children = new SyntheticView[] {menuView};
+        menuView.children = new SyntheticView[] {
+            navigationItem("Calls", "nav_calls"),
+            navigationItem("Messages", "nav_messages"),
+            navigationItem("Voicemail", "nav_voicemail"),
+            navigationItem("Contacts", "nav_contacts")
+        };
+        remaining[0] -= 4 + 2 + 4 * 3;
+
+        SyntheticView list = node("androidx.recyclerview.widget.RecyclerView", null, "history_list");
+        List<SyntheticView> rows = new ArrayList<>();
+        while (remaining[0] > 0) {
+            rows.add(row(random, DESCRIPTIONS));
+            remaining[0] -= 6;
+        }
+        list.children = rows.toArray(new SyntheticView[0]);
+
+        coordinator.children = new SyntheticView[] {toolbar, list, navigation};
+        return root;
+    }
+
+    /**
+     * A history list of roughly nodeCount nodes whose rows use only content
+     * without exclude keywords, so a subtree scan has to visit every node.
+     */
+    static SyntheticView buildUnexcludedList(int nodeCount, long seed, KeywordMatcher rules) {
+        List<String> descriptions = new ArrayList<>();
+        for (String description : DESCRIPTIONS) {
+            if ((rules.scan(description) & KeywordMatcher.EXCLUDE) == 0) {
+                descriptions.add(description);
+            }
+        }
+        String[] pool = descriptions.toArray(new String[0]);
+
+        Random random = new Random(seed);
+        SyntheticView list = node("androidx.recyclerview.widget.RecyclerView", null, "history_list");
+        List<SyntheticView> rows = new ArrayList<>();
+        for (int remaining = nodeCount - 1; remaining >= 6; remaining -= 6) {
+            rows.add(row(random, pool));
+        }
+        list.children = rows.toArray(new SyntheticView[0]);
+        return list;
+    }
+
+    /** The first node with the given resource name, in depth-first order. */
+    static SyntheticView find(SyntheticView root, String resourceName) {
+        int id = idOf(resourceName);
+        for (SyntheticView view : flatten(root)) {
+            if (view.id == id) {
+                return view;
+            }
+        }
+        throw new IllegalArgumentException(resourceName);
+    }
+
+    /** Every node of the tree in depth-first order. */
+    static SyntheticView[] flatten(SyntheticView root) {
+        List<SyntheticView> out = new ArrayList<>();
+        collect(root, out);
+        return out.toArray(new SyntheticView[0]);
+    }
+
+    private static void collect(SyntheticView view, List<SyntheticView> out) {
+        out.add(view);
+        for (SyntheticView child : view.children) {
+            collect(child, out);
+        }
+    }
+
+    private static SyntheticView row(Random random, String[] descriptions) {
+        String[] rowTypes = {"call_list_item", "message_list_item", "voicemail_list_item"};
+        String description = descriptions[random.nextInt(descriptions.length)];
+        SyntheticView row = node("androidx.constraintlayout.widget.ConstraintLayout", description,
+            rowTypes[random.nextInt(rowTypes.length)]);
+        SyntheticView texts = node("android.widget.LinearLayout", null, null);
+        texts.children = new SyntheticView[] {
+            textNode(NAMES[random.nextInt(NAMES.length)], "contact_name"),
+            textNode(descriptions[random.nextInt(descriptions.length)], "snippet"),
+            textNode(TIMESTAMPS[random.nextInt(TIMESTAMPS.length)], "timestamp")
+        };
+        row.children = new SyntheticView[] {node("android.widget.ImageView", null, "contact_avatar"), texts};
+        return row;
+    }
+
+    private static SyntheticView navigationItem(String title, String resourceName) {
+        SyntheticView item = node("com.google.android.material.bottomnavigation.BottomNavigationItemView",
+            title, resourceName);
+        item.children = new SyntheticView[] {
+            node("android.widget.ImageView", null, null),
+            node("android.widget.TextView", null, null)
+        };
+        return item;
+    }
+
+    private static SyntheticView textNode(String text, String resourceName) {
+        SyntheticView view = node("android.widget.TextView", null, resourceName);
+        view.text = text;
+        return view;
+    }
+
+    private static SyntheticView node(String className, String description, String resourceName) {
+        return new SyntheticView(className, description, null, idOf(resourceName));
+    }
+
+    static int idOf(String resourceName) {
+        if (resourceName == null) {
+            return ViewTree.NO_ID;
+        }
+        for (int i = 0; i < RESOURCE_NAMES.length; i++) {
+            if (RESOURCE_NAMES[i].equals(resourceName)) {
+                return SyntheticViewTree.ID_BASE + i;
+            }
+        }
+        throw new IllegalArgumentException(resourceName);
+    }
+}
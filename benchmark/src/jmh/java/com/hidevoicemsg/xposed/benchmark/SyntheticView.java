@@ -0,0 +1,28 @@
+package com.hidevoicemsg.xposed.benchmark;
+
+import com.hidevoicemsg.xposed.core.ViewTree;
+
+/** A plain-JVM stand-in for an Android view: just the fields the classifier reads. */
+final class SyntheticView {
+
+    static final SyntheticView[] NO_CHILDREN = new SyntheticView[0];
+
+    final String className;
+    final CharSequence contentDescription;
+    final Object tag;
+    final int id;
+    CharSequence text;
+    SyntheticView[] children = NO_CHILDREN;
+    boolean hidden;
+
+    SyntheticView(String className, CharSequence contentDescription, Object tag, int id) {
+        this.className = className;
+        this.contentDescription = contentDescription;
+        this.tag = tag;
+        this.id = id;
+    }
+
+    SyntheticView(String className) {
+        this(className, null, null, ViewTree.NO_ID);
+    }
+}
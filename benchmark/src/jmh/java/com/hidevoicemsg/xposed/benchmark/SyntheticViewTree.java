@@ -0,0 +1,68 @@
+package com.hidevoicemsg.xposed.benchmark;
+
+import com.hidevoicemsg.xposed.core.ViewTree;
+
+/**
+ * ViewTree over SyntheticView nodes. Resource names come from a fixed table
+ * indexed by the low bits of the ID, like R.id values in one package.
+ *
+ * hide() only counts, so a benchmark can walk the same tree repeatedly and
+ * always measure the full cost.
+ */
+final class SyntheticViewTree implements ViewTree<SyntheticView> {
+
+    static final int ID_BASE = 0x7f0b0000;
+
+    private final String[] resourceNames;
+    int hideCalls;
+
+    SyntheticViewTree(String[] resourceNames) {
+        this.resourceNames = resourceNames;
+    }
+
+    @Override
+    public int getChildCount(SyntheticView view) {
+        return view.children.length;
+    }
+
+    @Override
+    public SyntheticView getChildAt(SyntheticView view, int index) {
+        return view.children[index];
+    }
+
+    @Override
+    public CharSequence getContentDescription(SyntheticView view) {
+        return view.contentDescription;
+    }
+
+    @Override
+    public CharSequence getText(SyntheticView view) {
+        return view.text;
+    }
+
+    @Override
+    public Object getTag(SyntheticView view) {
+        return view.tag;
+    }
+
+    @Override
+    public int getId(SyntheticView view) {
+        return view.id;
+    }
+
+    @Override
+    public CharSequence getResourceName(SyntheticView view, int id) {
+        int index = id - ID_BASE;
+        return index >= 0 && index < resourceNames.length ? resourceNames[index] : null;
+    }
+
+    @Override
+    public boolean isHidden(SyntheticView view) {
+        return view.hidden;
+    }
+
+    @Override
+    public void hide(SyntheticView view) {
+        hideCalls++;
+    }
+}
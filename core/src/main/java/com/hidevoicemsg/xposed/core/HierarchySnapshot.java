@@ -0,0 +1,190 @@
+package com.hidevoicemsg.xposed.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of one or more recorded view hierarchies (one per
+ * window). Strings are stored once in a table and referenced by index; nodes
+ * follow in pre-order with their depth, so the tree is rebuilt without
+ * storing child counts.
+ *
+ * Layout: magic, format version, app versionCode, capture time, the rules
+ * the verdicts were computed under (since version 2), string table, then per
+ * node: depth, visibility, recorded flags, resource ID and five string
+ * references (class, description, text, tag, resource name), where 0 means
+ * null.
+ */
+public final class HierarchySnapshot {
+
+    private static final int MAGIC = 0x48564d53; // "HVMS"
+    private static final int FORMAT_VERSION = 2;
+    // Index 0 is reserved for null, and references are written as unsigned shorts
+    private static final int MAX_STRINGS = 0xffff;
+
+    public final long versionCode;
+    public final long capturedAt;
+    // Null for snapshots written before the rules were recorded
+    public final SnapshotRules rules;
+    public final List<RecordedView> roots;
+
+    public HierarchySnapshot(long versionCode, long capturedAt, SnapshotRules rules, List<RecordedView> roots) {
+        this.versionCode = versionCode;
+        this.capturedAt = capturedAt;
+        this.rules = rules;
+        this.roots = roots;
+    }
+
+    /** Total number of recorded views. */
+    public int nodeCount() {
+        int count = 0;
+        for (RecordedView root : roots) {
+            count += countNodes(root);
+        }
+        return count;
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        List<RecordedView> nodes = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        for (RecordedView root : roots) {
+            flatten(root, 0, nodes, depths);
+        }
+
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (RecordedView node : nodes) {
+            intern(node.className, indexes, strings);
+            intern(node.contentDescription, indexes, strings);
+            intern(node.text, indexes, strings);
+            intern(node.tag, indexes, strings);
+            intern(node.resourceName, indexes, strings);
+        }
+        if (strings.size() >= MAX_STRINGS) {
+            throw new IOException("Too many distinct strings: " + strings.size());
+        }
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(versionCode);
+        out.writeLong(capturedAt);
+        out.writeBoolean(rules != null);
+        if (rules != null) {
+            rules.write(out);
+        }
+
+        out.writeShort(strings.size());
+        for (String value : strings) {
+            out.writeUTF(value);
+        }
+
+        out.writeInt(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            RecordedView node = nodes.get(i);
+            out.writeShort(depths.get(i));
+            out.writeByte(node.visibility);
+            out.writeByte(node.recordedFlags);
+            out.writeInt(node.id);
+            writeRef(out, node.className, indexes);
+            writeRef(out, node.contentDescription, indexes);
+            writeRef(out, node.text, indexes);
+            writeRef(out, node.tag, indexes);
+            writeRef(out, node.resourceName, indexes);
+        }
+        out.flush();
+    }
+
+    public static HierarchySnapshot read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a hierarchy snapshot");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        long versionCode = in.readLong();
+        long capturedAt = in.readLong();
+        SnapshotRules rules = null;
+        if (version >= 2 && in.readBoolean()) {
+            rules = SnapshotRules.read(in);
+        }
+
+        String[] strings = new String[in.readUnsignedShort() + 1];
+        for (int i = 1; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        List<RecordedView> roots = new ArrayList<>();
+        // Ancestors of the current node, indexed by depth
+        List<RecordedView> path = new ArrayList<>();
+        int nodeCount = in.readInt();
+        for (int i = 0; i < nodeCount; i++) {
+            int depth = in.readUnsignedShort();
+            int visibility = in.readUnsignedByte();
+            int flags = in.readUnsignedByte();
+            int id = in.readInt();
+            RecordedView node = new RecordedView(
+                readRef(in, strings), readRef(in, strings), readRef(in, strings),
+                readRef(in, strings), readRef(in, strings), id, visibility, flags);
+
+            if (depth > path.size()) {
+                throw new IOException("Corrupt snapshot: depth " + depth + " after " + path.size());
+            }
+            if (depth == 0) {
+                roots.add(node);
+            } else {
+                path.get(depth - 1).children.add(node);
+            }
+            while (path.size() > depth) {
+                path.remove(path.size() - 1);
+            }
+            path.add(node);
+        }
+        return new HierarchySnapshot(versionCode, capturedAt, rules, roots);
+    }
+
+    private static void flatten(RecordedView node, int depth, List<RecordedView> nodes, List<Integer> depths) {
+        nodes.add(node);
+        depths.add(depth);
+        for (RecordedView child : node.children) {
+            flatten(child, depth + 1, nodes, depths);
+        }
+    }
+
+    private static int countNodes(RecordedView node) {
+        int count = 1;
+        for (RecordedView child : node.children) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    private static void intern(String value, Map<String, Integer> indexes, List<String> strings) {
+        if (value != null && !indexes.containsKey(value)) {
+            strings.add(value);
+            indexes.put(value, strings.size());
+        }
+    }
+
+    private static void writeRef(DataOutputStream out, String value, Map<String, Integer> indexes)
+            throws IOException {
+        out.writeShort(value == null ? 0 : indexes.get(value));
+    }
+
+    private static String readRef(DataInputStream in, String[] strings) throws IOException {
+        int index = in.readUnsignedShort();
+        if (index >= strings.length) {
+            throw new IOException("Corrupt snapshot: string " + index + " of " + strings.length);
+        }
+        return strings[index];
+    }
+}
@@ -0,0 +1,203 @@
+package com.hidevoicemsg.xposed.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Case-insensitive multi-keyword matcher. The include and exclude keyword sets
+ * are compiled once into a single Aho-Corasick automaton over chars, so any
+ * CharSequence is classified in one pass, in place, without a lowercase copy.
+ *
+ * Instances are immutable and safe to share between hook threads.
+ */
+public final class KeywordMatcher {
+
+    public static final int INCLUDE = 1;
+    public static final int EXCLUDE = 2;
+
+    // Char class per ASCII char; 0 means "not part of any keyword"
+    private final int[] asciiClasses = new int[128];
+    // Sorted non-ASCII keyword chars and their classes
+    private final char[] otherChars;
+    private final int[] otherClasses;
+    private final int classCount;
+    // Dense DFA: transitions[state * classCount + charClass]
+    private final int[] transitions;
+    // INCLUDE/EXCLUDE flags reached in each state, failure links included
+    private final byte[] outputs;
+
+    private KeywordMatcher(String[] include, String[] exclude) {
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordFlags = new ArrayList<>();
+        addKeywords(include, INCLUDE, keywords, keywordFlags);
+        addKeywords(exclude, EXCLUDE, keywords, keywordFlags);
+
+        // Assign a class to every distinct keyword char
+        TreeSet<Character> nonAscii = new TreeSet<>();
+        int nextClass = 1;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c < 128) {
+                    if (asciiClasses[c] == 0) {
+                        asciiClasses[c] = nextClass++;
+                    }
+                } else {
+                    nonAscii.add(c);
+                }
+            }
+        }
+        otherChars = new char[nonAscii.size()];
+        otherClasses = new int[nonAscii.size()];
+        int index = 0;
+        for (char c : nonAscii) {
+            otherChars[index] = c;
+            otherClasses[index] = nextClass++;
+            index++;
+        }
+        classCount = nextClass;
+
+        // Build the trie
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<Integer> trieOutputs = new ArrayList<>();
+        trie.add(new HashMap<Integer, Integer>());
+        trieOutputs.add(0);
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int cls = classOf(keyword.charAt(i));
+                Integer next = trie.get(state).get(cls);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<Integer, Integer>());
+                    trieOutputs.add(0);
+                    trie.get(state).put(cls, next);
+                }
+                state = next;
+            }
+            trieOutputs.set(state, trieOutputs.get(state) | keywordFlags.get(k));
+        }
+
+        // Breadth-first over the trie to resolve failure links into a full DFA
+        int stateCount = trie.size();
+        transitions = new int[stateCount * classCount];
+        outputs = new byte[stateCount];
+        int[] failure = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        for (int cls = 0; cls < classCount; cls++) {
+            Integer next = trie.get(0).get(cls);
+            if (next != null) {
+                transitions[cls] = next;
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        outputs[0] = (byte) (int) trieOutputs.get(0);
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = (byte) (trieOutputs.get(state) | outputs[failure[state]]);
+            for (int cls = 0; cls < classCount; cls++) {
+                Integer next = trie.get(state).get(cls);
+                if (next != null) {
+                    failure[next] = transitions[failure[state] * classCount + cls];
+                    transitions[state * classCount + cls] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * classCount + cls] = transitions[failure[state] * classCount + cls];
+                }
+            }
+        }
+    }
+
+    public static KeywordMatcher compile(String[] include, String[] exclude) {
+        return new KeywordMatcher(include, exclude);
+    }
+
+    /**
+     * Scans the text and returns the union of INCLUDE/EXCLUDE flags for every
+     * keyword found. Stops early once an exclude keyword has been seen, since
+     * exclusions always win.
+     */
+    public int scan(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+
+        int state = 0;
+        int flags = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * classCount + classOf(text.charAt(i))];
+            flags |= outputs[state];
+            if ((flags & EXCLUDE) != 0) {
+                return flags;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * True when the text contains an include keyword, whatever exclude
+     * keywords it also contains. For free text such as message bodies, where
+     * a word like "call" says nothing about what the text is.
+     */
+    public boolean containsInclude(CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * classCount + classOf(text.charAt(i))];
+            if ((outputs[state] & INCLUDE) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean matches(CharSequence text) {
+        return isMatch(scan(text));
+    }
+
+    /** True when the combined flags of one or more scans mean "message related". */
+    public static boolean isMatch(int flags) {
+        return flags == INCLUDE;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            return asciiClasses[c];
+        }
+        c = Character.toLowerCase(c);
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index >= 0 ? otherClasses[index] : 0;
+    }
+
+    private static void addKeywords(String[] source, int flag, List<String> keywords, List<Integer> keywordFlags) {
+        for (String keyword : source) {
+            if (keyword == null || keyword.isEmpty()) {
+                continue;
+            }
+            StringBuilder lower = new StringBuilder(keyword.length());
+            for (int i = 0; i < keyword.length(); i++) {
+                lower.append(Character.toLowerCase(keyword.charAt(i)));
+            }
+            keywords.add(lower.toString());
+            keywordFlags.add(flag);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.hidevoicemsg.xposed.core;
+
+import java.util.Collection;
+
+/**
+ * The module's text, notification and view verdicts plus the hide walk,
+ * independent of Android so the same code can be benchmarked and replayed
+ * on a plain JVM.
+ */
+public final class MessageClassifier {
+
+    /** Receives counters and discoveries; every method must be cheap. */
+    public interface Listener {
+        void onViewClassified();
+
+        void onResourceCacheHit();
+
+        void onMessageResource(int resourceId);
+    }
+
+    // Shared rules used by every hook; an exclude keyword always wins
+    public static final String[] MESSAGE_KEYWORDS = {
+        "message", "text", "sms", "mms", "conversation", "chat"
+    };
+    public static final String[] EXCLUDED_KEYWORDS = {
+        "call", "voicemail", "dial", "phone", "setting", "account", "search"
+    };
+
+    private static final Listener NO_LISTENER = new Listener() {
+        @Override
+        public void onViewClassified() {
+        }
+
+        @Override
+        public void onResourceCacheHit() {
+        }
+
+        @Override
+        public void onMessageResource(int resourceId) {
+        }
+    };
+
+    private final KeywordMatcher rules;
+    private final ResourceVerdictTable resourceVerdicts;
+    private final Listener listener;
+
+    public MessageClassifier(KeywordMatcher rules, ResourceVerdictTable resourceVerdicts, Listener listener) {
+        this.rules = rules;
+        this.resourceVerdicts = resourceVerdicts;
+        this.listener = listener != null ? listener : NO_LISTENER;
+    }
+
+    public static MessageClassifier createDefault(ResourceVerdictTable resourceVerdicts, Listener listener) {
+        return new MessageClassifier(KeywordMatcher.compile(MESSAGE_KEYWORDS, EXCLUDED_KEYWORDS),
+            resourceVerdicts, listener);
+    }
+
+    public KeywordMatcher getRules() {
+        return rules;
+    }
+
+    public boolean isMessageText(CharSequence text) {
+        return rules.matches(text);
+    }
+
+    /**
+     * Only the title and channel ID can exclude a notification. The text and
+     * big text are message bodies, so they are searched for include keywords
+     * only: "call me back" in a text message must not let it through.
+     */
+    public boolean isMessageNotification(CharSequence title, CharSequence text,
+                                         CharSequence bigText, CharSequence channelId) {
+        int flags = rules.scan(title);
+        flags |= rules.scan(channelId);
+        if ((flags & KeywordMatcher.EXCLUDE) != 0) {
+            return false;
+        }
+        return flags == KeywordMatcher.INCLUDE || rules.containsInclude(text) || rules.containsInclude(bigText);
+    }
+
+    /** Classifies a notification channel once, from its ID, name and description. */
+    public boolean isMessageChannel(CharSequence channelId, CharSequence name, CharSequence description) {
+        int flags = rules.scan(channelId);
+        flags |= rules.scan(name);
+        flags |= rules.scan(description);
+        return KeywordMatcher.isMatch(flags);
+    }
+
+    /**
+     * Scans the content description, tag and resource name of a view and
+     * returns the combined KeywordMatcher flags. The resource verdict comes
+     * from the table, so resource names are only resolved once per ID.
+     */
+    public <V> int scanView(V view, ViewTree<V> tree) {
+        listener.onViewClassified();
+        int flags = 0;
+
+        int viewId = tree.getId(view);
+        if (viewId != ViewTree.NO_ID) {
+            int verdict = resourceVerdicts.get(viewId);
+            if (verdict == ResourceVerdictTable.UNKNOWN) {
+                verdict = ResourceVerdictTable.fromFlags(rules.scan(tree.getResourceName(view, viewId)));
+                resourceVerdicts.put(viewId, verdict);
+                if (verdict == ResourceVerdictTable.MESSAGE) {
+                    listener.onMessageResource(viewId);
+                }
+            } else {
+                listener.onResourceCacheHit();
+            }
+            if (verdict == ResourceVerdictTable.EXCLUDED) {
+                // Exclusions always win; no need to look at the text
+                return KeywordMatcher.EXCLUDE;
+            }
+            flags = ResourceVerdictTable.toFlags(verdict);
+        }
+
+        flags |= rules.scan(tree.getContentDescription(view));
+
+        Object tag = tree.getTag(view);
+        if (tag != null) {
+            flags |= rules.scan(tag instanceof CharSequence ? (CharSequence) tag : tag.toString());
+        }
+        return flags;
+    }
+
+    public <V> boolean isMessageView(V view, ViewTree<V> tree) {
+        return KeywordMatcher.isMatch(scanView(view, tree));
+    }
+
+    /**
+     * Hides the given view if it is a message view, otherwise the message views
+     * below it, for incremental passes that revisit single changed subtrees.
+     * Excluded views (call, voicemail, settings...) are not hidden but still
+     * searched. Views already hidden are skipped without being classified or
+     * searched. Every view found hidden or hidden by this walk is added to
+     * hiddenViews, when given, so the caller can notice if one is shown again.
+     *
+     * @return number of views hidden by this walk
+     */
+    public <V> int hideMessageSubtree(V root, ViewTree<V> tree, Collection<? super V> hiddenViews) {
+        if (tree.isHidden(root)) {
+            if (hiddenViews != null) {
+                hiddenViews.add(root);
+            }
+            return 0;
+        }
+        if (KeywordMatcher.isMatch(scanView(root, tree))) {
+            tree.hide(root);
+            if (hiddenViews != null) {
+                hiddenViews.add(root);
+            }
+            return 1;
+        }
+        return hideMessageChildren(root, tree, hiddenViews);
+    }
+
+    /** Runs {@link #hideMessageSubtree} on every child of the parent. */
+    public <V> int hideMessageChildren(V parent, ViewTree<V> tree, Collection<? super V> hiddenViews) {
+        int hidden = 0;
+        for (int i = 0, count = tree.getChildCount(parent); i < count; i++) {
+            hidden += hideMessageSubtree(tree.getChildAt(parent, i), tree, hiddenViews);
+        }
+        return hidden;
+    }
+}
@@ -0,0 +1,57 @@
+package com.hidevoicemsg.xposed.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One view from a recorded Google Voice hierarchy: what the classifier reads,
+ * plus the visibility and verdict flags seen on the device when it was
+ * recorded.
+ */
+public final class RecordedView {
+
+    // Same values as android.view.View
+    public static final int VISIBLE = 0;
+    public static final int INVISIBLE = 4;
+    public static final int GONE = 8;
+
+    public final String className;
+    public final String contentDescription;
+    // Null in snapshots from the module, which does not record view text
+    public final String text;
+    public final String tag;
+    public final String resourceName;
+    public final int id;
+    public final int visibility;
+    /** KeywordMatcher flags the module computed for this view on the device. */
+    public final int recordedFlags;
+    public final List<RecordedView> children = new ArrayList<>();
+
+    // Set by RecordedViewTree.hide during a replayed walk
+    boolean hidden;
+
+    public RecordedView(String className, String contentDescription, String text, String tag,
+                        String resourceName, int id, int visibility, int recordedFlags) {
+        this.className = className;
+        this.contentDescription = contentDescription;
+        this.text = text;
+        this.tag = tag;
+        this.resourceName = resourceName;
+        this.id = id;
+        this.visibility = visibility;
+        this.recordedFlags = recordedFlags;
+        this.hidden = visibility == GONE;
+    }
+
+    public boolean isHidden() {
+        return hidden;
+    }
+
+    /** Restores the recorded visibility below and including this view, so a walk can be replayed again. */
+    public void reset() {
+        hidden = visibility == GONE;
+        for (int i = 0; i < children.size(); i++) {
+            children.get(i).reset();
+        }
+    }
+}
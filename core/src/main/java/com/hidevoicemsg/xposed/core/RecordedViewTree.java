@@ -0,0 +1,55 @@
+package com.hidevoicemsg.xposed.core;
+
+/** Walks recorded hierarchies with the same classifier code that runs on the device. */
+public final class RecordedViewTree implements ViewTree<RecordedView> {
+
+    public static final RecordedViewTree INSTANCE = new RecordedViewTree();
+
+    private RecordedViewTree() {
+    }
+
+    @Override
+    public int getChildCount(RecordedView view) {
+        return view.children.size();
+    }
+
+    @Override
+    public RecordedView getChildAt(RecordedView view, int index) {
+        return view.children.get(index);
+    }
+
+    @Override
+    public CharSequence getContentDescription(RecordedView view) {
+        return view.contentDescription;
+    }
+
+    @Override
+    public CharSequence getText(RecordedView view) {
+        return view.text;
+    }
+
+    @Override
+    public Object getTag(RecordedView view) {
+        return view.tag;
+    }
+
+    @Override
+    public int getId(RecordedView view) {
+        return view.id;
+    }
+
+    @Override
+    public CharSequence getResourceName(RecordedView view, int id) {
+        return view.resourceName;
+    }
+
+    @Override
+    public boolean isHidden(RecordedView view) {
+        return view.hidden;
+    }
+
+    @Override
+    public void hide(RecordedView view) {
+        view.hidden = true;
+    }
+}
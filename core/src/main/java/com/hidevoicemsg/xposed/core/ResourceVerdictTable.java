@@ -0,0 +1,99 @@
+package com.hidevoicemsg.xposed.core;
+
+/**
+ * Open-addressed int map from view resource ID to a MESSAGE / EXCLUDED /
+ * NEUTRAL verdict. Resource names never change within a process, so each ID
+ * is resolved and scanned once and later lookups do no string work at all.
+ *
+ * Only used from the UI thread (and before any hook runs, when seeding).
+ */
+public final class ResourceVerdictTable {
+
+    public static final int UNKNOWN = -1;
+    public static final int NEUTRAL = 0;
+    public static final int MESSAGE = 1;
+    public static final int EXCLUDED = 2;
+
+    private static final int EMPTY = 0; // View IDs are never 0
+
+    private int[] keys = new int[64];
+    private byte[] values = new byte[64];
+    private int size;
+
+    public int get(int resourceId) {
+        int mask = keys.length - 1;
+        for (int i = mix(resourceId) & mask; ; i = (i + 1) & mask) {
+            int key = keys[i];
+            if (key == resourceId) {
+                return values[i];
+            }
+            if (key == EMPTY) {
+                return UNKNOWN;
+            }
+        }
+    }
+
+    public void put(int resourceId, int verdict) {
+        if (resourceId == EMPTY) {
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        if (insert(keys, values, resourceId, (byte) verdict)) {
+            size++;
+        }
+    }
+
+    /** Maps KeywordMatcher flags for a resource name to a table verdict. */
+    public static int fromFlags(int flags) {
+        if ((flags & KeywordMatcher.EXCLUDE) != 0) {
+            return EXCLUDED;
+        }
+        return KeywordMatcher.isMatch(flags) ? MESSAGE : NEUTRAL;
+    }
+
+    /** Maps a table verdict back to KeywordMatcher flags. */
+    public static int toFlags(int verdict) {
+        switch (verdict) {
+            case MESSAGE:
+                return KeywordMatcher.INCLUDE;
+            case EXCLUDED:
+                return KeywordMatcher.EXCLUDE;
+            default:
+                return 0;
+        }
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        byte[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new byte[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(keys, values, oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static boolean insert(int[] keys, byte[] values, int key, byte value) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return false;
+            }
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                return true;
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,76 @@
+package com.hidevoicemsg.xposed.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The rules a hierarchy was classified under on the device: keyword lists
+ * plus the resource IDs seeded as message views from preferences and the
+ * target cache. Those IDs cannot be re-derived from resource names, so a
+ * replay without them would report every seeded view as a regression.
+ */
+public final class SnapshotRules {
+
+    public final String[] messageKeywords;
+    public final String[] excludedKeywords;
+    public final int[] messageResourceIds;
+
+    public SnapshotRules(String[] messageKeywords, String[] excludedKeywords, int[] messageResourceIds) {
+        this.messageKeywords = messageKeywords;
+        this.excludedKeywords = excludedKeywords;
+        this.messageResourceIds = messageResourceIds;
+    }
+
+    /** The built-in rules with no seeded resource IDs. */
+    public static SnapshotRules defaults() {
+        return new SnapshotRules(MessageClassifier.MESSAGE_KEYWORDS, MessageClassifier.EXCLUDED_KEYWORDS, new int[0]);
+    }
+
+    /**
+     * A classifier for these rules with its own resource table, seeded with
+     * the message IDs. Resource IDs are only stable within one app version,
+     * so every snapshot needs a table of its own.
+     */
+    public MessageClassifier newClassifier() {
+        ResourceVerdictTable table = new ResourceVerdictTable();
+        for (int resourceId : messageResourceIds) {
+            table.put(resourceId, ResourceVerdictTable.MESSAGE);
+        }
+        return new MessageClassifier(KeywordMatcher.compile(messageKeywords, excludedKeywords), table, null);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        writeStrings(out, messageKeywords);
+        writeStrings(out, excludedKeywords);
+        out.writeInt(messageResourceIds.length);
+        for (int resourceId : messageResourceIds) {
+            out.writeInt(resourceId);
+        }
+    }
+
+    static SnapshotRules read(DataInputStream in) throws IOException {
+        String[] messageKeywords = readStrings(in);
+        String[] excludedKeywords = readStrings(in);
+        int[] messageResourceIds = new int[in.readInt()];
+        for (int i = 0; i < messageResourceIds.length; i++) {
+            messageResourceIds[i] = in.readInt();
+        }
+        return new SnapshotRules(messageKeywords, excludedKeywords, messageResourceIds);
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeShort(values.length);
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] values = new String[in.readUnsignedShort()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+}
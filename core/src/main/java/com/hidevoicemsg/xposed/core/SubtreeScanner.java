@@ -0,0 +1,110 @@
+package com.hidevoicemsg.xposed.core;
+
+/**
+ * Scans the text and content descriptions of every visible node in a subtree
+ * with the shared rules, using an explicit reusable stack instead of
+ * recursion. Depth and node budgets keep the cost bounded on large inflated
+ * layouts; a subtree that exceeds the node budget is reported as neutral,
+ * since whole screens are never what the module wants to block.
+ *
+ * Not thread-safe: keep one instance per thread (the UI thread in practice).
+ *
+ * @param <V> the node type
+ */
+public final class SubtreeScanner<V> {
+
+    public static final int DEFAULT_MAX_DEPTH = 16;
+    public static final int DEFAULT_MAX_NODES = 256;
+
+    private final KeywordMatcher rules;
+    private final ViewTree<V> tree;
+    private final int maxDepth;
+    private final int maxNodes;
+
+    private Object[] stack = new Object[32];
+    private int[] depths = new int[32];
+
+    public SubtreeScanner(KeywordMatcher rules, ViewTree<V> tree, int maxDepth, int maxNodes) {
+        this.rules = rules;
+        this.tree = tree;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Returns the combined KeywordMatcher flags of the subtree. Stops as soon
+     * as an exclude keyword is seen, because exclusions always win.
+     */
+    @SuppressWarnings("unchecked")
+    public int scan(V root) {
+        int top = 0;
+        int visited = 0;
+        int flags = 0;
+        stack[top] = root;
+        depths[top] = 0;
+        top++;
+
+        try {
+            while (top > 0) {
+                top--;
+                V node = (V) stack[top];
+                int depth = depths[top];
+                stack[top] = null;
+
+                if (tree.isHidden(node)) {
+                    continue;
+                }
+                if (++visited > maxNodes) {
+                    return 0;
+                }
+
+                flags |= rules.scan(tree.getContentDescription(node));
+                CharSequence text = tree.getText(node);
+                if (text != null) {
+                    flags |= rules.scan(text);
+                }
+                if ((flags & KeywordMatcher.EXCLUDE) != 0) {
+                    return flags;
+                }
+
+                if (depth < maxDepth) {
+                    top = pushChildren(node, depth, top);
+                }
+            }
+            return flags;
+        } finally {
+            clear(top);
+        }
+    }
+
+    private int pushChildren(V node, int depth, int top) {
+        int childCount = tree.getChildCount(node);
+        ensureCapacity(top + childCount);
+        // Push in reverse so children are visited in layout order
+        for (int i = childCount - 1; i >= 0; i--) {
+            stack[top] = tree.getChildAt(node, i);
+            depths[top] = depth + 1;
+            top++;
+        }
+        return top;
+    }
+
+    private void clear(int top) {
+        // Don't keep views reachable from the reusable stack
+        for (int i = 0; i < top; i++) {
+            stack[i] = null;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > stack.length) {
+            int capacity = Math.max(size, stack.length * 2);
+            Object[] newStack = new Object[capacity];
+            int[] newDepths = new int[capacity];
+            System.arraycopy(stack, 0, newStack, 0, stack.length);
+            System.arraycopy(depths, 0, newDepths, 0, depths.length);
+            stack = newStack;
+            depths = newDepths;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.hidevoicemsg.xposed.core;
+
+/**
+ * Read/hide access to a view hierarchy, so the classifier can run against
+ * real Android views inside Google Voice or against synthetic trees on a
+ * plain JVM.
+ *
+ * @param <V> the node type
+ */
+public interface ViewTree<V> {
+
+    int NO_ID = -1;
+
+    /** Number of children, 0 for leaves. */
+    int getChildCount(V view);
+
+    V getChildAt(V view, int index);
+
+    CharSequence getContentDescription(V view);
+
+    /** Displayed text for text-bearing nodes, null for everything else. */
+    CharSequence getText(V view);
+
+    Object getTag(V view);
+
+    /** Resource ID of the node, or NO_ID. */
+    int getId(V view);
+
+    /** Resource entry name for an ID; only called once per ID. May return null. */
+    CharSequence getResourceName(V view, int id);
+
+    boolean isHidden(V view);
+
+    void hide(V view);
+}
@@ -0,0 +1,80 @@
+package com.hidevoicemsg.xposed.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class HierarchySnapshotTest {
+
+    @Test
+    public void roundTripKeepsRulesAndTree() throws IOException {
+        RecordedView root = new RecordedView("android.widget.FrameLayout", null, null, null,
+            "content", 0x1020002, RecordedView.VISIBLE, 0);
+        RecordedView list = new RecordedView("androidx.recyclerview.widget.RecyclerView", null, null, null,
+            "history_list", 0x7f0a0101, RecordedView.VISIBLE, 0);
+        RecordedView row = new RecordedView("android.widget.TextView", "Nachricht von Ana", "Hallo, wie geht's?",
+            "row", "history_row", 0x7f0a0102, RecordedView.GONE, KeywordMatcher.INCLUDE);
+        RecordedView tab = new RecordedView("android.widget.TextView", "Calls", "Calls", null,
+            null, 0x7f0a0103, RecordedView.INVISIBLE, KeywordMatcher.EXCLUDE);
+        root.children.add(list);
+        list.children.add(row);
+        root.children.add(tab);
+        RecordedView dialog = new RecordedView("android.widget.LinearLayout", "Сообщение", null, null,
+            null, 0, RecordedView.VISIBLE, KeywordMatcher.INCLUDE);
+
+        SnapshotRules rules = new SnapshotRules(new String[] {"message", "nachricht"}, new String[] {"call"},
+            new int[] {0x7f0a0102, 0x7f0a0200});
+        HierarchySnapshot written = new HierarchySnapshot(4123L, 1700000000000L, rules, Arrays.asList(root, dialog));
+        HierarchySnapshot read = roundTrip(written);
+
+        assertEquals(4123L, read.versionCode);
+        assertEquals(1700000000000L, read.capturedAt);
+        assertArrayEquals(rules.messageKeywords, read.rules.messageKeywords);
+        assertArrayEquals(rules.excludedKeywords, read.rules.excludedKeywords);
+        assertArrayEquals(rules.messageResourceIds, read.rules.messageResourceIds);
+        assertEquals(5, read.nodeCount());
+        assertEquals(2, read.roots.size());
+        assertSameTree(root, read.roots.get(0));
+        assertSameTree(dialog, read.roots.get(1));
+    }
+
+    @Test
+    public void roundTripWithoutRules() throws IOException {
+        RecordedView root = new RecordedView("android.widget.FrameLayout", null, null, null,
+            null, 0, RecordedView.VISIBLE, 0);
+        HierarchySnapshot read = roundTrip(
+            new HierarchySnapshot(1L, 2L, null, Collections.singletonList(root)));
+
+        assertNull(read.rules);
+        assertEquals(1, read.nodeCount());
+        assertSameTree(root, read.roots.get(0));
+    }
+
+    private static HierarchySnapshot roundTrip(HierarchySnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out);
+        return HierarchySnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertSameTree(RecordedView expected, RecordedView actual) {
+        assertEquals(expected.className, actual.className);
+        assertEquals(expected.contentDescription, actual.contentDescription);
+        assertEquals(expected.text, actual.text);
+        assertEquals(expected.tag, actual.tag);
+        assertEquals(expected.resourceName, actual.resourceName);
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.visibility, actual.visibility);
+        assertEquals(expected.recordedFlags, actual.recordedFlags);
+        assertEquals(expected.children.size(), actual.children.size());
+        for (int i = 0; i < expected.children.size(); i++) {
+            assertSameTree(expected.children.get(i), actual.children.get(i));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.hidevoicemsg.xposed.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class KeywordMatcherTest {
+
+    private static final KeywordMatcher DEFAULTS =
+        KeywordMatcher.compile(MessageClassifier.MESSAGE_KEYWORDS, MessageClassifier.EXCLUDED_KEYWORDS);
+
+    @Test
+    public void includeKeywordMatches() {
+        assertEquals(KeywordMatcher.INCLUDE, DEFAULTS.scan("Messages"));
+        assertTrue(DEFAULTS.matches("New text"));
+    }
+
+    @Test
+    public void excludeWinsOverInclude() {
+        assertEquals(KeywordMatcher.EXCLUDE, DEFAULTS.scan("Call history"));
+        assertFalse(DEFAULTS.matches("Voicemail messages"));
+        // Exclusion also wins when the include keyword comes first
+        assertFalse(DEFAULTS.matches("Message settings"));
+        assertFalse(KeywordMatcher.isMatch(DEFAULTS.scan("Messages") | DEFAULTS.scan("Calls")));
+    }
+
+    @Test
+    public void containsIncludeIgnoresExcludes() {
+        assertTrue(DEFAULTS.containsInclude("Call me back, I sent you a text"));
+        assertTrue(DEFAULTS.containsInclude("New message"));
+        assertFalse(DEFAULTS.containsInclude("Call me back"));
+        assertFalse(DEFAULTS.containsInclude(null));
+    }
+
+    @Test
+    public void noKeywordIsNoMatch() {
+        assertEquals(0, DEFAULTS.scan("Contacts"));
+        assertEquals(0, DEFAULTS.scan(""));
+        assertEquals(0, DEFAULTS.scan(null));
+        assertFalse(DEFAULTS.matches(null));
+    }
+
+    @Test
+    public void overlappingKeywords() {
+        KeywordMatcher matcher = KeywordMatcher.compile(
+            new String[] {"message", "messages", "text"}, new String[] {"ssages", "context menu"});
+        assertEquals(KeywordMatcher.INCLUDE, matcher.scan("message"));
+        // "messages" ends in "ssages", only reached through a failure link
+        assertFalse(matcher.matches("messages"));
+        assertTrue(matcher.matches("context"));
+        assertFalse(matcher.matches("Open context menu"));
+    }
+
+    @Test
+    public void keywordInsideLongerWordMatches() {
+        assertTrue(DEFAULTS.matches("Chatting"));
+        assertTrue(DEFAULTS.matches("textbox"));
+    }
+
+    @Test
+    public void matchingIgnoresCase() {
+        assertTrue(DEFAULTS.matches("MESSAGES"));
+        assertTrue(DEFAULTS.matches("mEsSaGe"));
+        KeywordMatcher matcher = KeywordMatcher.compile(new String[] {"SMS"}, new String[] {"CALL"});
+        assertTrue(matcher.matches("sms"));
+        assertFalse(matcher.matches("sms call"));
+    }
+
+    @Test
+    public void nonAsciiKeywords() {
+        KeywordMatcher matcher = KeywordMatcher.compile(
+            new String[] {"Nachrichten", "Сообщения", "短信", "Mensajes"}, new String[] {"Anrufe", "Звонки", "通话"});
+        assertTrue(matcher.matches("Neue Nachrichten"));
+        assertTrue(matcher.matches("СООБЩЕНИЯ"));
+        assertTrue(matcher.matches("сообщения"));
+        assertTrue(matcher.matches("短信"));
+        assertTrue(matcher.matches("mensajes"));
+        assertFalse(matcher.matches("Сообщения и звонки"));
+        assertFalse(matcher.matches("短信和通话"));
+        assertFalse(matcher.matches("Anrufe"));
+        // Accented letters are distinct chars, not case variants
+        assertFalse(matcher.matches("Mensajés"));
+    }
+}
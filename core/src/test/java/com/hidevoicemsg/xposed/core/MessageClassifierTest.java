@@ -0,0 +1,117 @@
+package com.hidevoicemsg.xposed.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class MessageClassifierTest {
+
+    private final MessageClassifier classifier = MessageClassifier.createDefault(new ResourceVerdictTable(), null);
+
+    @Test
+    public void notificationBodyCannotExclude() {
+        assertTrue(classifier.isMessageNotification("Ana", "New text message from Ana: call me back", null, null));
+        assertTrue(classifier.isMessageNotification("Ana", "Call me back", "Call me back, I sent you a text", null));
+    }
+
+    @Test
+    public void notificationTitleOrChannelExcludes() {
+        assertFalse(classifier.isMessageNotification("Missed call", "New text from Ana", null, null));
+        assertFalse(classifier.isMessageNotification("Ana", "New message", null, "voicemail_channel"));
+    }
+
+    @Test
+    public void notificationTitleOrChannelIncludes() {
+        assertTrue(classifier.isMessageNotification("New message", "Hi", null, null));
+        assertTrue(classifier.isMessageNotification("Ana", "Hi", null, "sms_channel"));
+        assertFalse(classifier.isMessageNotification("Ana", "Hi", null, "general"));
+        assertFalse(classifier.isMessageNotification(null, null, null, null));
+    }
+
+    @Test
+    public void hideWalkHidesMessageViewsWithoutDescending() {
+        RecordedView inner = view("Chat bubble", ViewTree.NO_ID, null);
+        RecordedView messages = view("Messages", ViewTree.NO_ID, null, inner);
+        RecordedView contacts = view("Contacts", ViewTree.NO_ID, null);
+        RecordedView bar = view(null, ViewTree.NO_ID, null, messages, contacts);
+
+        List<RecordedView> hiddenViews = new ArrayList<>();
+        assertEquals(1, classifier.hideMessageChildren(bar, RecordedViewTree.INSTANCE, hiddenViews));
+        assertTrue(messages.isHidden());
+        assertFalse(inner.isHidden());
+        assertFalse(contacts.isHidden());
+        assertFalse(bar.isHidden());
+        assertEquals(Arrays.asList(messages), hiddenViews);
+    }
+
+    @Test
+    public void hideWalkSearchesExcludedViews() {
+        RecordedView message = view("Text Ana", ViewTree.NO_ID, null);
+        RecordedView calls = view("Calls", ViewTree.NO_ID, null, message);
+
+        assertEquals(1, classifier.hideMessageSubtree(calls, RecordedViewTree.INSTANCE, null));
+        assertFalse(calls.isHidden());
+        assertTrue(message.isHidden());
+    }
+
+    @Test
+    public void hideWalkSkipsHiddenViewsButReportsThem() {
+        RecordedView message = view("Message", ViewTree.NO_ID, null);
+        RecordedView gone = new RecordedView("android.view.View", "Conversation", null, null, null,
+            ViewTree.NO_ID, RecordedView.GONE, 0);
+        gone.children.add(message);
+        RecordedView root = view(null, ViewTree.NO_ID, null, gone);
+
+        List<RecordedView> hiddenViews = new ArrayList<>();
+        assertEquals(0, classifier.hideMessageChildren(root, RecordedViewTree.INSTANCE, hiddenViews));
+        assertFalse(message.isHidden());
+        assertEquals(Arrays.asList(gone), hiddenViews);
+    }
+
+    @Test
+    public void hideWalkUsesResourceVerdicts() {
+        ResourceVerdictTable table = new ResourceVerdictTable();
+        table.put(0x7f0a0002, ResourceVerdictTable.MESSAGE);
+        final List<Integer> discovered = new ArrayList<>();
+        MessageClassifier classifier = MessageClassifier.createDefault(table, new MessageClassifier.Listener() {
+            @Override
+            public void onViewClassified() {
+            }
+
+            @Override
+            public void onResourceCacheHit() {
+            }
+
+            @Override
+            public void onMessageResource(int resourceId) {
+                discovered.add(resourceId);
+            }
+        });
+
+        RecordedView named = view(null, 0x7f0a0001, "sms_list");
+        RecordedView seeded = view(null, 0x7f0a0002, "item");
+        RecordedView excluded = view("New message", 0x7f0a0003, "call_log");
+        RecordedView root = view(null, ViewTree.NO_ID, null, named, seeded, excluded);
+
+        assertEquals(2, classifier.hideMessageChildren(root, RecordedViewTree.INSTANCE, null));
+        assertTrue(named.isHidden());
+        assertTrue(seeded.isHidden());
+        assertFalse(excluded.isHidden());
+        assertEquals(Arrays.asList(0x7f0a0001), discovered);
+        assertEquals(ResourceVerdictTable.EXCLUDED, table.get(0x7f0a0003));
+    }
+
+    private static RecordedView view(String description, int id, String resourceName, RecordedView... children) {
+        RecordedView view = new RecordedView("android.view.View", description, null, null, resourceName,
+            id, RecordedView.VISIBLE, 0);
+        for (RecordedView child : children) {
+            view.children.add(child);
+        }
+        return view;
+    }
+}
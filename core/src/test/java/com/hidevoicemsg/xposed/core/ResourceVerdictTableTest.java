@@ -0,0 +1,64 @@
+package com.hidevoicemsg.xposed.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ResourceVerdictTableTest {
+
+    @Test
+    public void unknownUntilPut() {
+        ResourceVerdictTable table = new ResourceVerdictTable();
+        assertEquals(ResourceVerdictTable.UNKNOWN, table.get(0x7f0a0001));
+
+        table.put(0x7f0a0001, ResourceVerdictTable.MESSAGE);
+        assertEquals(ResourceVerdictTable.MESSAGE, table.get(0x7f0a0001));
+        assertEquals(ResourceVerdictTable.UNKNOWN, table.get(0x7f0a0002));
+    }
+
+    @Test
+    public void putOverwrites() {
+        ResourceVerdictTable table = new ResourceVerdictTable();
+        table.put(0x7f0a0001, ResourceVerdictTable.MESSAGE);
+        table.put(0x7f0a0001, ResourceVerdictTable.EXCLUDED);
+        assertEquals(ResourceVerdictTable.EXCLUDED, table.get(0x7f0a0001));
+    }
+
+    @Test
+    public void entriesSurviveResize() {
+        ResourceVerdictTable table = new ResourceVerdictTable();
+        // Dense R.id-style values plus IDs that differ only in the high bits
+        for (int i = 0; i < 1000; i++) {
+            table.put(0x7f0a0000 + i, i % 3);
+            table.put(0x01000000 + (i << 16), (i + 1) % 3);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 3, table.get(0x7f0a0000 + i));
+            assertEquals((i + 1) % 3, table.get(0x01000000 + (i << 16)));
+        }
+        assertEquals(ResourceVerdictTable.UNKNOWN, table.get(0x7f0a0000 + 1000));
+    }
+
+    @Test
+    public void negativeIdsAreStored() {
+        ResourceVerdictTable table = new ResourceVerdictTable();
+        table.put(-2, ResourceVerdictTable.NEUTRAL);
+        table.put(0x80000001, ResourceVerdictTable.MESSAGE);
+        assertEquals(ResourceVerdictTable.NEUTRAL, table.get(-2));
+        assertEquals(ResourceVerdictTable.MESSAGE, table.get(0x80000001));
+    }
+
+    @Test
+    public void flagsRoundTrip() {
+        assertEquals(ResourceVerdictTable.MESSAGE, ResourceVerdictTable.fromFlags(KeywordMatcher.INCLUDE));
+        assertEquals(ResourceVerdictTable.EXCLUDED, ResourceVerdictTable.fromFlags(KeywordMatcher.EXCLUDE));
+        assertEquals(ResourceVerdictTable.EXCLUDED,
+            ResourceVerdictTable.fromFlags(KeywordMatcher.INCLUDE | KeywordMatcher.EXCLUDE));
+        assertEquals(ResourceVerdictTable.NEUTRAL, ResourceVerdictTable.fromFlags(0));
+
+        assertEquals(KeywordMatcher.INCLUDE, ResourceVerdictTable.toFlags(ResourceVerdictTable.MESSAGE));
+        assertEquals(KeywordMatcher.EXCLUDE, ResourceVerdictTable.toFlags(ResourceVerdictTable.EXCLUDED));
+        assertEquals(0, ResourceVerdictTable.toFlags(ResourceVerdictTable.NEUTRAL));
+        assertEquals(0, ResourceVerdictTable.toFlags(ResourceVerdictTable.UNKNOWN));
+    }
+}
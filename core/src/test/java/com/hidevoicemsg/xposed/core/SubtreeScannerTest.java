@@ -0,0 +1,89 @@
+package com.hidevoicemsg.xposed.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SubtreeScannerTest {
+
+    private static final KeywordMatcher RULES =
+        KeywordMatcher.compile(MessageClassifier.MESSAGE_KEYWORDS, MessageClassifier.EXCLUDED_KEYWORDS);
+
+    @Test
+    public void combinesTextAndDescriptions() {
+        RecordedView root = view(null, null,
+            view("Avatar", null),
+            view(null, "Ana"),
+            view(null, null, view(null, "New message")));
+        assertEquals(KeywordMatcher.INCLUDE, scanner(16, 256).scan(root));
+    }
+
+    @Test
+    public void excludeAnywhereWins() {
+        RecordedView root = view(null, null,
+            view(null, "New message"),
+            view(null, null, view("Call Ana", null)));
+        assertEquals(KeywordMatcher.INCLUDE | KeywordMatcher.EXCLUDE, scanner(16, 256).scan(root));
+    }
+
+    @Test
+    public void hiddenNodesAreSkipped() {
+        RecordedView hidden = view(null, null, view(null, "Call history"));
+        RecordedView root = view(null, null, view(null, "New message"), hidden);
+        assertEquals(KeywordMatcher.INCLUDE | KeywordMatcher.EXCLUDE, scanner(16, 256).scan(root));
+
+        hidden.hidden = true;
+        assertEquals(KeywordMatcher.INCLUDE, scanner(16, 256).scan(root));
+    }
+
+    @Test
+    public void depthBudgetStopsDescent() {
+        RecordedView root = view(null, null, view(null, null, view(null, null, view(null, "New message"))));
+        assertEquals(KeywordMatcher.INCLUDE, scanner(3, 256).scan(root));
+        assertEquals(0, scanner(2, 256).scan(root));
+    }
+
+    @Test
+    public void nodeBudgetMakesLargeSubtreesNeutral() {
+        RecordedView root = view(null, null);
+        for (int i = 0; i < 9; i++) {
+            root.children.add(view(null, "Message " + i));
+        }
+        assertEquals(KeywordMatcher.INCLUDE, scanner(16, 10).scan(root));
+        assertEquals(0, scanner(16, 9).scan(root));
+    }
+
+    @Test
+    public void scannerIsReusableAfterEarlyExit() {
+        SubtreeScanner<RecordedView> scanner = scanner(16, 256);
+        RecordedView excluded = view(null, null, view("Voicemail", null), view(null, null, view(null, "Hi")));
+        RecordedView message = view(null, null, view(null, "Chat"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(KeywordMatcher.EXCLUDE, scanner.scan(excluded));
+            assertEquals(KeywordMatcher.INCLUDE, scanner.scan(message));
+        }
+    }
+
+    @Test
+    public void wideSubtreesGrowTheStack() {
+        RecordedView root = view(null, null);
+        for (int i = 0; i < 100; i++) {
+            root.children.add(view(null, null, view(null, "Row " + i)));
+        }
+        root.children.get(99).children.get(0).children.add(view(null, "Text"));
+        assertEquals(KeywordMatcher.INCLUDE, scanner(16, 256).scan(root));
+    }
+
+    private static SubtreeScanner<RecordedView> scanner(int maxDepth, int maxNodes) {
+        return new SubtreeScanner<>(RULES, RecordedViewTree.INSTANCE, maxDepth, maxNodes);
+    }
+
+    private static RecordedView view(String description, String text, RecordedView... children) {
+        RecordedView view = new RecordedView("android.view.View", description, text, null, null,
+            ViewTree.NO_ID, RecordedView.VISIBLE, 0);
+        for (RecordedView child : children) {
+            view.children.add(child);
+        }
+        return view;
+    }
+}
@@ -0,0 +1,256 @@
+package com.hidevoicemsg.xposed.replay;
+
+import com.hidevoicemsg.xposed.core.HierarchySnapshot;
+import com.hidevoicemsg.xposed.core.KeywordMatcher;
+import com.hidevoicemsg.xposed.core.MessageClassifier;
+import com.hidevoicemsg.xposed.core.RecordedView;
+import com.hidevoicemsg.xposed.core.RecordedViewTree;
+import com.hidevoicemsg.xposed.core.SnapshotRules;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Replays recorded Google Voice hierarchies through the current classifier.
+ * For every snapshot it reports views whose verdict differs from the one
+ * recorded on the device, then times classification and the hide walk.
+ *
+ * Each snapshot is classified under the rules recorded with it (the built-in
+ * rules for old snapshots that have none), or under the rules given with
+ * --rules, a properties file using the module's preference keys. Every
+ * snapshot gets a fresh classifier, since resource IDs from one Google Voice
+ * version mean nothing in another.
+ *
+ * Usage: replay [--iterations N] [--rules rules.properties] snapshot.hvs|directory...
+ * Exits with status 1 when any verdict changed, so CI can flag regressions.
+ */
+public final class Replay {
+
+    private static final int DEFAULT_ITERATIONS = 200;
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final String USAGE = "Usage: replay [--iterations N] [--rules rules.properties] snapshot.hvs|directory...";
+
+    private final RecordedViewTree tree = RecordedViewTree.INSTANCE;
+    private final int iterations;
+    // Overrides the rules recorded in each snapshot when set
+    private final SnapshotRules rulesOverride;
+    private MessageClassifier classifier;
+
+    // Keeps the timed scans from being optimized away
+    private volatile int sink;
+    private int totalNodes;
+    private int totalDiffs;
+
+    private Replay(int iterations, SnapshotRules rulesOverride) {
+        this.iterations = iterations;
+        this.rulesOverride = rulesOverride;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = DEFAULT_ITERATIONS;
+        SnapshotRules rulesOverride = null;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--iterations") && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--rules") && i + 1 < args.length) {
+                rulesOverride = readRules(new File(args[++i]));
+            } else {
+                collect(new File(args[i]), files);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        Replay replay = new Replay(iterations, rulesOverride);
+        for (File file : files) {
+            replay.run(file);
+        }
+        System.out.println();
+        System.out.println(files.size() + " snapshots, " + replay.totalNodes + " views, "
+                           + replay.totalDiffs + " verdict changes");
+        System.exit(replay.totalDiffs == 0 ? 0 : 1);
+    }
+
+    /** Reads rules from a properties file with the module's preference keys; missing keys keep the defaults. */
+    private static SnapshotRules readRules(File file) throws IOException {
+        Properties properties = new Properties();
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            properties.load(reader);
+        } finally {
+            reader.close();
+        }
+
+        String[] idTexts = readList(properties, "message_resource_ids", new String[0]);
+        int[] resourceIds = new int[idTexts.length];
+        for (int i = 0; i < idTexts.length; i++) {
+            // Long.decode accepts 0x7f... IDs that overflow Integer.decode's sign check
+            resourceIds[i] = (int) (long) Long.decode(idTexts[i]);
+        }
+        return new SnapshotRules(
+            readList(properties, "message_keywords", MessageClassifier.MESSAGE_KEYWORDS),
+            readList(properties, "excluded_keywords", MessageClassifier.EXCLUDED_KEYWORDS),
+            resourceIds);
+    }
+
+    private static String[] readList(Properties properties, String key, String[] defaults) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaults;
+        }
+        List<String> items = new ArrayList<>();
+        for (String item : value.split("[,\n]")) {
+            item = item.trim();
+            if (!item.isEmpty()) {
+                items.add(item);
+            }
+        }
+        return items.toArray(new String[0]);
+    }
+
+    private static void collect(File file, List<File> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    collect(child, files);
+                }
+            }
+        } else if (file.getName().endsWith(".hvs")) {
+            files.add(file);
+        }
+    }
+
+    private void run(File file) throws IOException {
+        HierarchySnapshot snapshot;
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            snapshot = HierarchySnapshot.read(in);
+        } finally {
+            in.close();
+        }
+
+        int nodes = snapshot.nodeCount();
+        totalNodes += nodes;
+        String rulesSource = rulesOverride != null ? "--rules" : snapshot.rules != null ? "recorded rules" : "built-in rules";
+        System.out.println(file.getName() + " (versionCode " + snapshot.versionCode + ", " + nodes + " views, "
+                           + rulesSource + ")");
+
+        SnapshotRules rules = rulesOverride;
+        if (rules == null) {
+            rules = snapshot.rules != null ? snapshot.rules : SnapshotRules.defaults();
+        }
+        classifier = rules.newClassifier();
+
+        int diffs = 0;
+        for (RecordedView root : snapshot.roots) {
+            diffs += diff(root, root.className);
+        }
+        totalDiffs += diffs;
+
+        int hidden = 0;
+        for (RecordedView root : snapshot.roots) {
+            root.reset();
+            hidden += classifier.hideMessageChildren(root, tree, null);
+        }
+
+        double scanNanos = timeScan(snapshot) / (double) nodes;
+        double walkMicros = timeWalk(snapshot) / 1000.0;
+        System.out.printf("  %d verdict changes, %d views hidden, scan %.1f ns/view, hide walk %.1f us%n",
+                          diffs, hidden, scanNanos, walkMicros);
+    }
+
+    /** Prints and counts the views whose verdict no longer matches the recorded one. */
+    private int diff(RecordedView view, String path) {
+        int diffs = 0;
+        boolean recorded = KeywordMatcher.isMatch(view.recordedFlags);
+        boolean current = classifier.isMessageView(view, tree);
+        if (recorded != current) {
+            diffs++;
+            System.out.println("  " + (current ? "+ now message: " : "- no longer message: ") + describe(view, path));
+        }
+        for (RecordedView child : view.children) {
+            diffs += diff(child, path + " > " + simpleName(child.className));
+        }
+        return diffs;
+    }
+
+    private static String describe(RecordedView view, String path) {
+        StringBuilder out = new StringBuilder(path);
+        if (view.resourceName != null) {
+            out.append(" id/").append(view.resourceName);
+        }
+        if (view.contentDescription != null) {
+            out.append(" desc=\"").append(view.contentDescription).append('"');
+        }
+        if (view.tag != null) {
+            out.append(" tag=\"").append(view.tag).append('"');
+        }
+        return out.toString();
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /** Average nanoseconds to classify every view of the snapshot once. */
+    private long timeScan(HierarchySnapshot snapshot) {
+        int flags = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            flags += scanAll(snapshot);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            flags += scanAll(snapshot);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink = flags;
+        return elapsed / iterations;
+    }
+
+    private int scanAll(HierarchySnapshot snapshot) {
+        int flags = 0;
+        for (RecordedView root : snapshot.roots) {
+            flags += scanTree(root);
+        }
+        return flags;
+    }
+
+    private int scanTree(RecordedView view) {
+        int flags = classifier.scanView(view, tree);
+        for (int i = 0; i < view.children.size(); i++) {
+            flags += scanTree(view.children.get(i));
+        }
+        return flags;
+    }
+
+    /** Average nanoseconds for one hide walk over every window, from the recorded visibility. */
+    private long timeWalk(HierarchySnapshot snapshot) {
+        long total = 0;
+        for (int i = -WARMUP_ITERATIONS; i < iterations; i++) {
+            for (RecordedView root : snapshot.roots) {
+                root.reset();
+            }
+            long start = System.nanoTime();
+            for (RecordedView root : snapshot.roots) {
+                classifier.hideMessageChildren(root, tree, null);
+            }
+            if (i >= 0) {
+                total += System.nanoTime() - start;
+            }
+        }
+        return total / iterations;
+    }
+}